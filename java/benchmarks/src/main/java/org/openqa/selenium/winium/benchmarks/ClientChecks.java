@@ -0,0 +1,481 @@
+package org.openqa.selenium.winium.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.net.PortProber;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.RemoteWebElement;
+import org.openqa.selenium.winium.DataGrid;
+import org.openqa.selenium.winium.DesktopOptions;
+import org.openqa.selenium.winium.WiniumAsyncDriver;
+import org.openqa.selenium.winium.WiniumAsyncTransport;
+import org.openqa.selenium.winium.WiniumDriver;
+import org.openqa.selenium.winium.WiniumDriverCommandExecutor;
+import org.openqa.selenium.winium.WiniumElementCache;
+import org.openqa.selenium.winium.WiniumNodeSelector;
+import org.openqa.selenium.winium.WiniumRecording;
+import org.openqa.selenium.winium.WiniumRecordingClientFactory;
+import org.openqa.selenium.winium.WiniumWait;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end checks of client features which need a driver to talk to, run against in-process stub servers.
+ * Prints the outcome of every check and exits with status 1 if any of them failed.
+ * <pre>
+ * java -cp benchmarks.jar org.openqa.selenium.winium.benchmarks.ClientChecks
+ * </pre>
+ */
+public class ClientChecks {
+    private static final String GRID_ID = "grid-1";
+    private static final long COOLDOWN_MILLIS = 300;
+
+    public static void main(String[] args) throws Exception {
+        final StubWiniumServer server = startStub();
+
+        int failed = 0;
+        try {
+            failed += run("pipelined DataGrid commands keep their own cells", new Check() {
+                @Override
+                public void run() throws Exception {
+                    pipelinedDataGridCommands(server);
+                }
+            });
+            failed += run("pipelined standard commands bypass the batch endpoint", new Check() {
+                @Override
+                public void run() throws Exception {
+                    pipelinedStandardCommands(server);
+                }
+            });
+            failed += run("queued actions are sent before a batch", new Check() {
+                @Override
+                public void run() throws Exception {
+                    queuedActionBeforeBatch(server);
+                }
+            });
+            failed += run("queued actions are sent before a wait", new Check() {
+                @Override
+                public void run() throws Exception {
+                    queuedActionBeforeWait(server);
+                }
+            });
+            failed += run("async commands flush the queue and clear cached elements", new Check() {
+                @Override
+                public void run() throws Exception {
+                    asyncCommandAfterQueue(server);
+                }
+            });
+            failed += run("read-only batches keep cached elements", new Check() {
+                @Override
+                public void run() throws Exception {
+                    batchCacheInvalidation(server);
+                }
+            });
+            failed += run("node selector fails over from unreachable nodes and cools them down", new Check() {
+                @Override
+                public void run() throws Exception {
+                    nodeFailover(server);
+                }
+            });
+            failed += run("node selector throws session errors without failover", new Check() {
+                @Override
+                public void run() throws Exception {
+                    nodeSessionError(server);
+                }
+            });
+            failed += run("node selector prefers nodes with the fewest sessions", new Check() {
+                @Override
+                public void run() throws Exception {
+                    leastSessionsOrder();
+                }
+            });
+            failed += run("node selector prefers nodes with the lowest latency", new Check() {
+                @Override
+                public void run() throws Exception {
+                    lowestLatencyOrder();
+                }
+            });
+        } finally {
+            server.stop();
+        }
+
+        System.exit(failed > 0 ? 1 : 0);
+    }
+
+    /**
+     * Queues two cells of a grid with fire-and-forget commands and reads the row count, which flushes the queue.
+     */
+    private static void pipelinedDataGridCommands(StubWiniumServer server) throws Exception {
+        List<WiniumRecording.Exchange> exchanges = record(server, new Scenario() {
+            @Override
+            public void run(WiniumDriver driver) {
+                DataGrid grid = new DataGrid(element(driver, GRID_ID));
+                driver.setPipelined(true);
+                grid.scrollToCell(1, 1);
+                grid.selectCell(5, 5);
+                grid.getRowCount();
+            }
+        });
+
+        JsonArray batch = body(find(exchanges, "/batch")).getAsJsonArray("commands");
+        check(batch.size() == 2, "Expected 2 batched commands but got %s", batch);
+        checkCell(batch.get(0), "scrollToDataGridCell", 1, 1);
+        checkCell(batch.get(1), "selectDataGridCell", 5, 5);
+
+        JsonObject rowCount = body(find(exchanges, "/datagrid/row/count"));
+        check(!rowCount.has("row") && !rowCount.has("column"), "Row count sent with a cell: %s", rowCount);
+    }
+
+    /**
+     * Queues a click between Winium extension commands, which must not end up in the batch request.
+     */
+    private static void pipelinedStandardCommands(StubWiniumServer server) throws Exception {
+        List<WiniumRecording.Exchange> exchanges = record(server, new Scenario() {
+            @Override
+            public void run(WiniumDriver driver) {
+                DataGrid grid = new DataGrid(element(driver, GRID_ID));
+                driver.setPipelined(true);
+                grid.scrollToCell(1, 1);
+                grid.getElement().click();
+                grid.selectCell(2, 2);
+                driver.flush();
+            }
+        });
+
+        List<String> paths = paths(exchanges);
+        int click = paths.indexOf("/element/" + GRID_ID + "/click");
+        check(click >= 0, "Click was not sent on its own: %s", paths);
+        check(paths.indexOf("/batch") < click && click < paths.lastIndexOf("/batch"),
+                "Commands were not sent in the order they were queued: %s", paths);
+        for (WiniumRecording.Exchange exchange : exchanges) {
+            if (exchange.getPath().endsWith("/batch")) {
+                for (JsonElement command : body(exchange).getAsJsonArray("commands")) {
+                    String name = command.getAsJsonObject().get("name").getAsString();
+                    check(!"clickElement".equals(name), "Click was sent in a batch: %s", paths);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues a click and executes a batch, which must not overtake the click.
+     */
+    private static void queuedActionBeforeBatch(StubWiniumServer server) throws Exception {
+        List<WiniumRecording.Exchange> exchanges = record(server, new Scenario() {
+            @Override
+            public void run(WiniumDriver driver) {
+                RemoteWebElement grid = element(driver, GRID_ID);
+                driver.setPipelined(true);
+                grid.click();
+                driver.newBatch().getDataGridRowCount(grid).execute();
+            }
+        });
+
+        List<String> paths = paths(exchanges);
+        int click = paths.indexOf("/element/" + GRID_ID + "/click");
+        check(click >= 0 && click < paths.indexOf("/batch"), "Batch overtook the queued click: %s", paths);
+    }
+
+    /**
+     * Queues a click and waits for its effect, the wait must be sent after the click.
+     */
+    private static void queuedActionBeforeWait(StubWiniumServer server) throws Exception {
+        server.setCommandValue("{\"ELEMENT\":\"" + GRID_ID + "\"}");
+        try {
+            List<WiniumRecording.Exchange> exchanges = record(server, new Scenario() {
+                @Override
+                public void run(WiniumDriver driver) {
+                    driver.setPipelined(true);
+                    element(driver, GRID_ID).click();
+                    new WiniumWait(driver).until(WiniumWait.Condition.VISIBLE, "id", "Dialog");
+                }
+            });
+
+            List<String> paths = paths(exchanges);
+            int click = paths.indexOf("/element/" + GRID_ID + "/click");
+            check(click >= 0 && click < paths.indexOf("/element/wait"), "Wait overtook the queued click: %s",
+                    paths);
+        } finally {
+            server.setCommandValue("42");
+        }
+    }
+
+    /**
+     * Queues a click with a cached element and clicks through the async facade, which sends its own click
+     * only after the queued one and clears the cache.
+     */
+    private static void asyncCommandAfterQueue(final StubWiniumServer server) throws Exception {
+        server.setCommandValue("{\"ELEMENT\":\"" + GRID_ID + "\"}");
+        final WiniumAsyncTransport transport = new WiniumAsyncTransport.Builder().build();
+        server.setRecordRequests(true);
+        try {
+            record(server, new Scenario() {
+                @Override
+                public void run(WiniumDriver driver) {
+                    WiniumElementCache cache = new WiniumElementCache.Builder().build();
+                    driver.setElementCache(cache);
+                    WebElement grid = driver.findElementById(GRID_ID);
+                    driver.setPipelined(true);
+                    grid.click();
+
+                    // Queuing the click cleared the cache, so fill it again
+                    driver.findElementById(GRID_ID);
+                    try {
+                        new WiniumAsyncDriver(driver, transport).click(grid).get(10, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    }
+                    check(cache.size() == 0, "Async click did not clear the cache");
+
+                    List<String> paths = server.getRequestPaths();
+                    String click = "/session/" + driver.getSessionId() + "/element/" + GRID_ID + "/click";
+                    check(paths.indexOf(click) >= 0 && paths.indexOf(click) < paths.lastIndexOf(click),
+                            "Queued click was not sent before the async one: %s", paths);
+                }
+            });
+        } finally {
+            transport.close();
+            server.setRecordRequests(false);
+            server.setCommandValue("42");
+        }
+    }
+
+    /**
+     * Runs a read-only batch and a batch with an action while an element is cached.
+     */
+    private static void batchCacheInvalidation(StubWiniumServer server) throws Exception {
+        server.setCommandValue("{\"ELEMENT\":\"" + GRID_ID + "\"}");
+        try {
+            record(server, new Scenario() {
+                @Override
+                public void run(WiniumDriver driver) {
+                    WiniumElementCache cache = new WiniumElementCache.Builder().build();
+                    driver.setElementCache(cache);
+                    WebElement grid = driver.findElementById(GRID_ID);
+
+                    driver.newBatch().getDataGridRowCount(grid).getDataGridColumnCount(grid).execute();
+                    check(cache.size() == 1, "Read-only batch cleared the cache");
+                    driver.findElementById(GRID_ID);
+                    check(cache.getHitCount() == 1, "Element was not found in the cache after a read-only batch");
+
+                    driver.newBatch().getDataGridRowCount(grid).selectDataGridCell(grid, 1, 1).execute();
+                    check(cache.size() == 0, "Batch with an action did not clear the cache");
+                }
+            });
+        } finally {
+            server.setCommandValue("42");
+        }
+    }
+
+    /**
+     * Starts a session with an unreachable node first in line, which is skipped and put into the cooldown.
+     */
+    private static void nodeFailover(StubWiniumServer server) throws Exception {
+        URL unreachable = new URL("http://localhost:" + PortProber.findFreePort());
+        WiniumNodeSelector selector = new WiniumNodeSelector.Builder()
+                .withNode(unreachable)
+                .withNode(server.getUrl())
+                .withFailureCooldown(COOLDOWN_MILLIS, TimeUnit.MILLISECONDS)
+                .build();
+        WiniumNodeSelector.Node dead = selector.getNodes().get(0);
+        WiniumNodeSelector.Node alive = selector.getNodes().get(1);
+
+        WiniumDriver driver = selector.newDriver(new DesktopOptions());
+        try {
+            check(nodeOf(driver).equals(server.getUrl()), "Session started on %s", nodeOf(driver));
+            check(dead.getFailureCount() == 1 && !dead.isHealthy(), "Unreachable node was not put aside: %s",
+                    dead.getFailureCount());
+            check(dead.getActiveSessions() == 0 && alive.getActiveSessions() == 1,
+                    "Unexpected sessions %s/%s", dead.getActiveSessions(), alive.getActiveSessions());
+        } finally {
+            driver.quit();
+        }
+        check(alive.getActiveSessions() == 0, "Quit did not free the slot: %s", alive.getActiveSessions());
+
+        Thread.sleep(COOLDOWN_MILLIS * 2);
+        check(dead.isHealthy(), "Node is still cooling down after %s ms", COOLDOWN_MILLIS * 2);
+    }
+
+    /**
+     * Starts a session with a node which can not launch the application first in line.
+     */
+    private static void nodeSessionError(StubWiniumServer server) throws Exception {
+        StubWiniumServer failing = startStub();
+        try {
+            failing.setFailNewSession(true);
+            WiniumNodeSelector selector = new WiniumNodeSelector.Builder()
+                    .withNode(failing.getUrl())
+                    .withNode(server.getUrl())
+                    .build();
+
+            try {
+                selector.newDriver(new DesktopOptions()).quit();
+                throw new AssertionError("Session error was not thrown");
+            } catch (WebDriverException e) {
+                check(e.getMessage().contains("Stub failed to start the session"), "Unexpected error %s", e);
+            }
+            for (WiniumNodeSelector.Node node : selector.getNodes()) {
+                check(node.isHealthy() && node.getFailureCount() == 0 && node.getActiveSessions() == 0,
+                        "Node %s was affected by the session error", node);
+            }
+        } finally {
+            failing.stop();
+        }
+    }
+
+    private static void leastSessionsOrder() throws Exception {
+        StubWiniumServer first = startStub();
+        StubWiniumServer second = startStub();
+        try {
+            WiniumNodeSelector selector = new WiniumNodeSelector.Builder()
+                    .withNode(first.getUrl())
+                    .withNode(second.getUrl())
+                    .withStrategy(WiniumNodeSelector.Strategy.LEAST_SESSIONS)
+                    .build();
+
+            WiniumDriver one = selector.newDriver(new DesktopOptions());
+            WiniumDriver two = selector.newDriver(new DesktopOptions());
+            check(!nodeOf(one).equals(nodeOf(two)), "Both sessions started on %s", nodeOf(one));
+            one.quit();
+            WiniumDriver three = selector.newDriver(new DesktopOptions());
+            check(nodeOf(three).equals(nodeOf(one)), "Session started on the busy node %s", nodeOf(three));
+            two.quit();
+            three.quit();
+        } finally {
+            first.stop();
+            second.stop();
+        }
+    }
+
+    private static void lowestLatencyOrder() throws Exception {
+        StubWiniumServer slow = startStub();
+        StubWiniumServer fast = startStub();
+        try {
+            slow.setLatencyMicros(TimeUnit.MILLISECONDS.toMicros(20));
+            WiniumNodeSelector selector = new WiniumNodeSelector.Builder()
+                    .withNode(slow.getUrl())
+                    .withNode(fast.getUrl())
+                    .withStrategy(WiniumNodeSelector.Strategy.LOWEST_LATENCY)
+                    .build();
+
+            // Without measurements the nodes are equal and the first one is taken
+            WiniumDriver one = selector.newDriver(new DesktopOptions());
+            check(nodeOf(one).equals(slow.getUrl()), "First session started on %s", nodeOf(one));
+            one.getTitle();
+            WiniumDriver two = selector.newDriver(new DesktopOptions());
+            check(nodeOf(two).equals(fast.getUrl()), "Second session started on %s", nodeOf(two));
+            two.getTitle();
+            WiniumDriver three = selector.newDriver(new DesktopOptions());
+            check(nodeOf(three).equals(fast.getUrl()), "Third session started on the slow node %s", nodeOf(three));
+            one.quit();
+            two.quit();
+            three.quit();
+        } finally {
+            slow.stop();
+            fast.stop();
+        }
+    }
+
+    private static List<WiniumRecording.Exchange> record(StubWiniumServer server, Scenario scenario)
+            throws IOException {
+        File file = File.createTempFile("client-checks", ".wnr");
+        try {
+            WiniumRecordingClientFactory recorder = new WiniumRecordingClientFactory(file, null);
+            WiniumDriver driver = new WiniumDriver(
+                    new WiniumDriverCommandExecutor(server.getUrl(), recorder), new DesktopOptions());
+            try {
+                scenario.run(driver);
+            } finally {
+                driver.quit();
+                recorder.close();
+            }
+            return WiniumRecording.read(file).getExchanges();
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static StubWiniumServer startStub() throws IOException {
+        StubWiniumServer server = new StubWiniumServer(PortProber.findFreePort());
+        server.start();
+        return server;
+    }
+
+    private static URL nodeOf(WiniumDriver driver) {
+        return ((HttpCommandExecutor) driver.getCommandExecutor()).getAddressOfRemoteServer();
+    }
+
+    private static RemoteWebElement element(WiniumDriver driver, String id) {
+        RemoteWebElement element = new RemoteWebElement();
+        element.setParent(driver);
+        element.setId(id);
+        return element;
+    }
+
+    private static WiniumRecording.Exchange find(List<WiniumRecording.Exchange> exchanges, String pathSuffix) {
+        for (WiniumRecording.Exchange exchange : exchanges) {
+            if (exchange.getPath().endsWith(pathSuffix)) {
+                return exchange;
+            }
+        }
+        throw new AssertionError("No request to " + pathSuffix + " was sent");
+    }
+
+    /**
+     * @return Paths of the requests without the session prefix, in the order they were sent.
+     */
+    private static List<String> paths(List<WiniumRecording.Exchange> exchanges) {
+        List<String> paths = new ArrayList<String>();
+        for (WiniumRecording.Exchange exchange : exchanges) {
+            paths.add(exchange.getPath().replaceFirst("^/session/[^/]+", ""));
+        }
+        return paths;
+    }
+
+    private static JsonObject body(WiniumRecording.Exchange exchange) throws IOException {
+        return new JsonParser().parse(new String(exchange.getRequestBody(), "UTF-8")).getAsJsonObject();
+    }
+
+    private static void checkCell(JsonElement command, String name, int row, int column) {
+        JsonObject object = command.getAsJsonObject();
+        JsonObject parameters = object.getAsJsonObject("parameters");
+        check(name.equals(object.get("name").getAsString())
+                        && String.valueOf(row).equals(String.valueOf(parameters.get("row")))
+                        && String.valueOf(column).equals(String.valueOf(parameters.get("column"))),
+                "Expected %s of cell %s/%s but got %s", name, row, column, object);
+    }
+
+    static void check(boolean condition, String message, Object... args) {
+        if (!condition) {
+            throw new AssertionError(String.format(message, args));
+        }
+    }
+
+    private static int run(String name, Check check) {
+        try {
+            check.run();
+            System.out.println("PASS " + name);
+            return 0;
+        } catch (Throwable t) {
+            System.out.println("FAIL " + name + ": " + t);
+            return 1;
+        }
+    }
+
+    private interface Check {
+        void run() throws Exception;
+    }
+
+    private interface Scenario {
+        void run(WiniumDriver driver);
+    }
+}
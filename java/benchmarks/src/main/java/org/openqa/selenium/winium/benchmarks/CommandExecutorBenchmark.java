@@ -0,0 +1,78 @@
+package org.openqa.selenium.winium.benchmarks;
+
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.net.PortProber;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.SessionId;
+import org.openqa.selenium.winium.WiniumDriverCommandExecutor;
+import org.openqa.selenium.winium.WiniumHttpClientFactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip of a Winium extension command through {@link WiniumDriverCommandExecutor} to a local stub server.
+ * Compares the default Selenium transport with {@link WiniumHttpClientFactory}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandExecutorBenchmark {
+    @Param({"default", "keepAlive"})
+    public String transport;
+
+    @Param({"0"})
+    public long serverLatencyMicros;
+
+    private StubWiniumServer server;
+    private WiniumHttpClientFactory clientFactory;
+    private WiniumDriverCommandExecutor executor;
+    private Command command;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new StubWiniumServer(PortProber.findFreePort());
+        server.setLatencyMicros(serverLatencyMicros);
+        server.start();
+
+        if ("keepAlive".equals(transport)) {
+            clientFactory = new WiniumHttpClientFactory.Builder().build();
+            executor = new WiniumDriverCommandExecutor(server.getUrl(), clientFactory);
+        } else {
+            executor = new WiniumDriverCommandExecutor(server.getUrl());
+        }
+
+        command = new Command(new SessionId("stub-session"), "getDataGridRowCount",
+                ImmutableMap.of("id", "grid"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (clientFactory != null) {
+            clientFactory.close();
+        }
+        server.stop();
+    }
+
+    @Benchmark
+    public Response execute() throws IOException {
+        return executor.execute(command);
+    }
+}
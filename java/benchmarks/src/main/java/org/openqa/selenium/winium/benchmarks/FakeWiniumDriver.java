@@ -0,0 +1,22 @@
+package org.openqa.selenium.winium.benchmarks;
+
+import java.io.IOException;
+
+/**
+ * Stands in for the Winium driver executable: serves {@link StubWiniumServer} on the given port
+ * until a /shutdown request arrives.
+ */
+public class FakeWiniumDriver {
+    public static void main(String[] args) throws IOException {
+        int port = Integer.parseInt(args[0]);
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            }
+        }
+
+        new StubWiniumServer(port).start();
+        System.out.println("Listening on port " + port);
+        System.out.flush();
+    }
+}
@@ -0,0 +1,470 @@
+package org.openqa.selenium.winium.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openqa.selenium.net.PortProber;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.JsonToBeanConverter;
+import org.openqa.selenium.winium.DesktopOptions;
+import org.openqa.selenium.winium.WiniumDriver;
+import org.openqa.selenium.winium.WiniumDriverCommandExecutor;
+import org.openqa.selenium.winium.WiniumMetrics;
+import org.openqa.selenium.winium.WiniumMetricsListener;
+import org.openqa.selenium.winium.WiniumOptions;
+import org.openqa.selenium.winium.WiniumRecording;
+import org.openqa.selenium.winium.WiniumSessionRunner;
+import org.openqa.selenium.winium.WiniumUrlConnectionClientFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ramps up concurrent {@link WiniumDriver} sessions against a Winium server in stages and measures
+ * how many sessions one client JVM and one server sustain. Every session runs on its own thread
+ * and executes commands picked at random from a weighted command mix until its stage ends.
+ * <p>
+ * Per stage the harness reports throughput, error rate and per command latency percentiles,
+ * measured after the sessions of the stage have been ramped up.
+ * The first stage which fails more than the allowed share of commands, or does not gain at least
+ * 5% throughput over the previous stage, is reported as the saturation point.
+ * <pre>
+ * java -cp benchmarks.jar org.openqa.selenium.winium.benchmarks.LoadHarness \
+ *     --url http://winium-node:9999 --app C:\app.exe --sessions 1,10,50,100 --duration 60 \
+ *     --script mix.txt --out load.json
+ * </pre>
+ * Instead of {@code --url}, {@code --stub} starts a {@link StubWiniumServer} and {@code --replay <recording>}
+ * starts a {@link ReplayWiniumServer} in the same JVM. A command mix script has one command per line:
+ * weight, command name and optional JSON parameters; lines starting with # are comments.
+ * <pre>
+ * 10 getTitle
+ * 5  findElement {"using": "id", "value": "SaveButton"}
+ * 1  getDataGridRowCount {"id": "grid-1"}
+ * </pre>
+ */
+public class LoadHarness {
+    private static final double MIN_THROUGHPUT_GAIN = 1.05;
+
+    private final URL url;
+    private final WiniumOptions options;
+    private final List<Integer> stages;
+    private final long stageDurationMillis;
+    private final long rampUpMillis;
+    private final long thinkTimeMillis;
+    private final double maxErrorRate;
+    private final CommandMix mix;
+
+    public LoadHarness(URL url, WiniumOptions options, List<Integer> stages, long stageDurationMillis,
+                       long rampUpMillis, long thinkTimeMillis, double maxErrorRate, CommandMix mix) {
+        this.url = url;
+        this.options = options;
+        this.stages = stages;
+        this.stageDurationMillis = stageDurationMillis;
+        this.rampUpMillis = rampUpMillis;
+        this.thinkTimeMillis = thinkTimeMillis;
+        this.maxErrorRate = maxErrorRate;
+        this.mix = mix;
+    }
+
+    public static void main(String[] args) throws Exception {
+        URL url = null;
+        String replay = null;
+        boolean stub = false;
+        double latencyScale = 1.0;
+        long stubLatencyMicros = 0;
+        DesktopOptions options = new DesktopOptions();
+        List<Integer> stages = Collections.singletonList(1);
+        long durationSeconds = 30;
+        long rampUpSeconds = 0;
+        long thinkTimeMillis = 0;
+        double maxErrorRate = 0.01;
+        CommandMix mix = CommandMix.parse("1 " + DriverCommand.GET_TITLE);
+        File out = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--stub".equals(arg)) {
+                stub = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                usage("Missing value of " + arg);
+            }
+            String value = args[++i];
+            if ("--url".equals(arg)) {
+                url = new URL(value);
+            } else if ("--replay".equals(arg)) {
+                replay = value;
+            } else if ("--latency-scale".equals(arg)) {
+                latencyScale = Double.parseDouble(value);
+            } else if ("--stub-latency-micros".equals(arg)) {
+                stubLatencyMicros = Long.parseLong(value);
+            } else if ("--app".equals(arg)) {
+                options.setApplicationPath(value);
+            } else if ("--sessions".equals(arg)) {
+                stages = new ArrayList<Integer>();
+                for (String stage : value.split(",")) {
+                    stages.add(Integer.parseInt(stage.trim()));
+                }
+            } else if ("--duration".equals(arg)) {
+                durationSeconds = Long.parseLong(value);
+            } else if ("--ramp-up".equals(arg)) {
+                rampUpSeconds = Long.parseLong(value);
+            } else if ("--think-time".equals(arg)) {
+                thinkTimeMillis = Long.parseLong(value);
+            } else if ("--max-error-rate".equals(arg)) {
+                maxErrorRate = Double.parseDouble(value);
+            } else if ("--script".equals(arg)) {
+                mix = CommandMix.parse(Files.toString(new File(value), Charsets.UTF_8));
+            } else if ("--out".equals(arg)) {
+                out = new File(value);
+            } else {
+                usage("Unknown option " + arg);
+            }
+        }
+
+        StubWiniumServer stubServer = null;
+        ReplayWiniumServer replayServer = null;
+        if (stub) {
+            stubServer = new StubWiniumServer(PortProber.findFreePort());
+            stubServer.setLatencyMicros(stubLatencyMicros);
+            stubServer.start();
+            url = stubServer.getUrl();
+        } else if (replay != null) {
+            replayServer = new ReplayWiniumServer(PortProber.findFreePort(), WiniumRecording.read(new File(replay)));
+            replayServer.setLatencyScale(latencyScale);
+            replayServer.start();
+            url = replayServer.getUrl();
+        } else if (url == null) {
+            usage("One of --url, --stub and --replay is required");
+        }
+
+        try {
+            JsonObject result = new LoadHarness(url, options, stages, TimeUnit.SECONDS.toMillis(durationSeconds),
+                    TimeUnit.SECONDS.toMillis(rampUpSeconds), thinkTimeMillis, maxErrorRate, mix).run();
+            String json = new GsonBuilder().setPrettyPrinting().serializeNulls().create().toJson(result);
+            if (out != null) {
+                Files.write(json, out, Charsets.UTF_8);
+            } else {
+                System.out.println(json);
+            }
+        } finally {
+            if (stubServer != null) {
+                stubServer.stop();
+            }
+            if (replayServer != null) {
+                replayServer.stop();
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Runs all stages one after another.
+     *
+     * @return The report of all stages and the saturation point.
+     */
+    public JsonObject run() throws InterruptedException {
+        JsonObject result = new JsonObject();
+        result.addProperty("url", url.toString());
+        result.addProperty("stageDurationSeconds", stageDurationMillis / 1000.0);
+        result.addProperty("rampUpSeconds", rampUpMillis / 1000.0);
+        result.addProperty("thinkTimeMillis", thinkTimeMillis);
+        result.add("script", mix.toJson());
+
+        JsonArray stageResults = new JsonArray();
+        JsonObject saturation = null;
+        JsonObject previous = null;
+        for (int sessions : stages) {
+            JsonObject stage = runStage(sessions);
+            stageResults.add(stage);
+            if (saturation == null) {
+                saturation = saturationOf(previous, stage);
+            }
+            previous = stage;
+        }
+        result.add("stages", stageResults);
+        result.add("saturation", saturation);
+        return result;
+    }
+
+    private JsonObject runStage(final int sessions) throws InterruptedException {
+        final WiniumMetrics metrics = new WiniumMetrics();
+        final WiniumMetrics sessionMetrics = new WiniumMetrics();
+        final WiniumMetricsListener listener = new WiniumMetricsListener() {
+            @Override
+            public void commandStarted(String commandName) {
+                metricsOf(commandName).commandStarted(commandName);
+            }
+
+            @Override
+            public void commandFinished(String commandName, long durationNanos, String error) {
+                metricsOf(commandName).commandFinished(commandName, durationNanos, error);
+            }
+
+            @Override
+            public void serviceStarted(long durationNanos) {
+            }
+
+            @Override
+            public void serviceStopped(long durationNanos) {
+            }
+
+            private WiniumMetrics metricsOf(String commandName) {
+                // Session starts and quits are kept through the ramp-up
+                return isLifecycleCommand(commandName) ? sessionMetrics : metrics;
+            }
+        };
+        final WiniumUrlConnectionClientFactory clientFactory = new WiniumUrlConnectionClientFactory.Builder().build();
+        WiniumSessionRunner runner = new WiniumSessionRunner.Builder().build(new Supplier<WiniumDriver>() {
+            @Override
+            public WiniumDriver get() {
+                WiniumDriverCommandExecutor executor = new WiniumDriverCommandExecutor(url, clientFactory);
+                executor.setMetricsListener(listener);
+                return new WiniumDriver(executor, options);
+            }
+        });
+
+        long start = System.currentTimeMillis();
+        final long deadline = start + rampUpMillis + stageDurationMillis;
+        List<ListenableFuture<Long>> workers = new ArrayList<ListenableFuture<Long>>();
+        for (int i = 0; i < sessions; i++) {
+            Thread.sleep(Math.max(0, start + rampUpMillis * i / sessions - System.currentTimeMillis()));
+            final Random random = new Random(i);
+            workers.add(runner.submit(new Function<WiniumDriver, Long>() {
+                @Override
+                public Long apply(WiniumDriver driver) {
+                    return runCommands(driver, random, deadline);
+                }
+            }));
+        }
+        Thread.sleep(Math.max(0, start + rampUpMillis - System.currentTimeMillis()));
+        // Only the steady state after ramp-up is measured
+        if (rampUpMillis > 0) {
+            metrics.reset();
+        }
+
+        long sessionFailures = 0;
+        for (ListenableFuture<Long> worker : workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                sessionFailures++;
+            }
+        }
+        runner.close();
+
+        long commands = 0;
+        long errors = 0;
+        JsonObject commandResults = new JsonObject();
+        for (Map.Entry<String, WiniumMetrics.CommandStatistics> entry : metrics.getCommandStatistics().entrySet()) {
+            WiniumMetrics.CommandStatistics statistics = entry.getValue();
+            commandResults.add(entry.getKey(), toJson(statistics));
+            commands += statistics.getCount();
+            errors += statistics.getErrorCount();
+        }
+        for (Map.Entry<String, WiniumMetrics.CommandStatistics> entry
+                : sessionMetrics.getCommandStatistics().entrySet()) {
+            commandResults.add(entry.getKey(), toJson(entry.getValue()));
+        }
+
+        JsonObject stage = new JsonObject();
+        stage.addProperty("sessions", sessions);
+        stage.addProperty("commands", commands);
+        stage.addProperty("throughputPerSecond", commands / (stageDurationMillis / 1000.0));
+        stage.addProperty("errors", errors);
+        stage.addProperty("errorRate", commands == 0 ? 0 : (double) errors / commands);
+        stage.addProperty("sessionFailures", sessionFailures);
+        stage.add("commandStatistics", commandResults);
+        return stage;
+    }
+
+    private long runCommands(WiniumDriver driver, Random random, long deadline) {
+        CommandExecutor executor = driver.getCommandExecutor();
+        long executed = 0;
+        while (System.currentTimeMillis() < deadline) {
+            CommandMix.Entry entry = mix.pick(random);
+            try {
+                executor.execute(new Command(driver.getSessionId(), entry.name, entry.parameters));
+            } catch (IOException e) {
+                // Recorded as an error by the metrics
+            } catch (RuntimeException e) {
+                // Recorded as an error by the metrics
+            }
+            executed++;
+
+            if (thinkTimeMillis > 0) {
+                try {
+                    Thread.sleep(thinkTimeMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        return executed;
+    }
+
+    private static boolean isLifecycleCommand(String commandName) {
+        return DriverCommand.NEW_SESSION.equals(commandName) || DriverCommand.QUIT.equals(commandName);
+    }
+
+    private JsonObject saturationOf(JsonObject previous, JsonObject stage) {
+        String reason = null;
+        double errorRate = stage.get("errorRate").getAsDouble();
+        if (errorRate > maxErrorRate || stage.get("sessionFailures").getAsLong() > 0) {
+            reason = String.format("error rate %.4f, %d sessions failed to start", errorRate,
+                    stage.get("sessionFailures").getAsLong());
+        } else if (previous != null && stage.get("sessions").getAsInt() > previous.get("sessions").getAsInt()
+                && stage.get("throughputPerSecond").getAsDouble()
+                < previous.get("throughputPerSecond").getAsDouble() * MIN_THROUGHPUT_GAIN) {
+            reason = String.format("throughput %.1f/s did not grow over %.1f/s",
+                    stage.get("throughputPerSecond").getAsDouble(), previous.get("throughputPerSecond").getAsDouble());
+        }
+        if (reason == null) {
+            return null;
+        }
+
+        JsonObject saturation = new JsonObject();
+        saturation.addProperty("sessions", stage.get("sessions").getAsInt());
+        saturation.addProperty("maxSustainedSessions", previous != null ? previous.get("sessions").getAsInt() : 0);
+        saturation.addProperty("reason", reason);
+        return saturation;
+    }
+
+    private static JsonObject toJson(WiniumMetrics.CommandStatistics statistics) {
+        WiniumMetrics.DurationStatistics latency = statistics.getLatency();
+        JsonObject json = new JsonObject();
+        json.addProperty("count", statistics.getCount());
+        json.addProperty("errors", statistics.getErrorCount());
+        json.addProperty("errorRate",
+                statistics.getCount() == 0 ? 0 : (double) statistics.getErrorCount() / statistics.getCount());
+        JsonObject errors = new JsonObject();
+        for (Map.Entry<String, Long> error : statistics.getErrors().entrySet()) {
+            errors.addProperty(error.getKey(), error.getValue());
+        }
+        json.add("errorsByType", errors);
+        json.addProperty("meanMicros", latency.getMeanMicros());
+        json.addProperty("p50Micros", latency.getP50Micros());
+        json.addProperty("p90Micros", latency.getP90Micros());
+        json.addProperty("p99Micros", latency.getP99Micros());
+        json.addProperty("p999Micros", latency.getP999Micros());
+        json.addProperty("maxMicros", latency.getMaxMicros());
+        return json;
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: LoadHarness (--url <url> | --stub | --replay <recording>) [--app <path>]"
+                + " [--sessions 1,10,50] [--duration <seconds>] [--ramp-up <seconds>] [--think-time <ms>]"
+                + " [--script <file>] [--max-error-rate 0.01] [--latency-scale 1.0] [--stub-latency-micros 0]"
+                + " [--out <file>]");
+        System.exit(1);
+    }
+
+    /**
+     * Weighted commands executed by the sessions.
+     */
+    public static class CommandMix {
+        private final List<Entry> entries;
+        private final int totalWeight;
+
+        CommandMix(List<Entry> entries) {
+            if (entries.isEmpty()) {
+                throw new IllegalArgumentException("Command mix is empty");
+            }
+            int total = 0;
+            for (Entry entry : entries) {
+                total += entry.weight;
+            }
+            this.entries = entries;
+            this.totalWeight = total;
+        }
+
+        /**
+         * Parses a script with one "weight command [JSON parameters]" line per command.
+         */
+        public static CommandMix parse(String script) {
+            List<Entry> entries = new ArrayList<Entry>();
+            for (String line : script.split("\r?\n")) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] parts = line.split("\\s+", 3);
+                if (parts.length < 2) {
+                    throw new IllegalArgumentException("Expected weight and command: " + line);
+                }
+                int weight = Integer.parseInt(parts[0]);
+                if (weight <= 0) {
+                    throw new IllegalArgumentException("Weight must be positive: " + line);
+                }
+                Map<String, Object> parameters = parts.length > 2
+                        ? parseParameters(parts[2]) : Collections.<String, Object>emptyMap();
+                entries.add(new Entry(weight, parts[1], parameters, parts.length > 2 ? parts[2] : null));
+            }
+            return new CommandMix(entries);
+        }
+
+        Entry pick(Random random) {
+            int point = random.nextInt(totalWeight);
+            for (Entry entry : entries) {
+                point -= entry.weight;
+                if (point < 0) {
+                    return entry;
+                }
+            }
+            return entries.get(entries.size() - 1);
+        }
+
+        JsonArray toJson() {
+            JsonArray json = new JsonArray();
+            for (Entry entry : entries) {
+                JsonObject command = new JsonObject();
+                command.addProperty("weight", entry.weight);
+                command.addProperty("command", entry.name);
+                if (entry.parametersJson != null) {
+                    command.add("parameters", new JsonParser().parse(entry.parametersJson));
+                }
+                json.add(command);
+            }
+            return json;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Map<String, Object> parseParameters(String json) {
+            return new JsonToBeanConverter().convert(Map.class, json);
+        }
+
+        static class Entry {
+            final int weight;
+            final String name;
+            final Map<String, Object> parameters;
+            final String parametersJson;
+
+            Entry(int weight, String name, Map<String, Object> parameters, String parametersJson) {
+                this.weight = weight;
+                this.name = name;
+                this.parameters = parameters;
+                this.parametersJson = parametersJson;
+            }
+        }
+    }
+}
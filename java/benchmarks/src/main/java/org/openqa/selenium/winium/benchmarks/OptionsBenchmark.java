@@ -0,0 +1,91 @@
+package org.openqa.selenium.winium.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.remote.BeanToJsonConverter;
+import org.openqa.selenium.winium.DesktopOptions;
+import org.openqa.selenium.winium.KeyboardSimulatorType;
+import org.openqa.selenium.winium.SilverlightOptions;
+import org.openqa.selenium.winium.StoreAppsOptions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning options into capabilities and of serializing them into a NEW_SESSION payload.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OptionsBenchmark {
+    private final BeanToJsonConverter converter = new BeanToJsonConverter();
+
+    private DesktopOptions desktopOptions;
+    private StoreAppsOptions storeAppsOptions;
+    private SilverlightOptions silverlightOptions;
+
+    @Setup
+    public void setUp() {
+        desktopOptions = new DesktopOptions();
+        desktopOptions.setApplicationPath("C:\\Windows\\System32\\notepad.exe");
+        desktopOptions.setArguments("C:\\file.txt");
+        desktopOptions.setKeyboardSimulator(KeyboardSimulatorType.BasedOnInputSimulatorLib);
+        desktopOptions.setLaunchDelay(500);
+
+        storeAppsOptions = new StoreAppsOptions();
+        storeAppsOptions.setApplicationPath("C:\\app\\App.appx");
+        storeAppsOptions.setDeviceName("Emulator 8.1");
+        storeAppsOptions.setFiles(ImmutableMap.of("C:\\data\\a.txt", "download\\a.txt",
+                "C:\\data\\b.txt", "download\\b.txt"));
+        storeAppsOptions.setDependencies(ImmutableList.of("C:\\deps\\Microsoft.VCLibs.appx"));
+        storeAppsOptions.setLaunchTimeout(10000);
+
+        silverlightOptions = new SilverlightOptions();
+        silverlightOptions.setApplicationPath("C:\\app\\App.xap");
+        silverlightOptions.setDeviceName("Emulator WVGA");
+        silverlightOptions.setInnerPort(9998);
+    }
+
+    @Benchmark
+    public Capabilities desktopToCapabilities() {
+        return desktopOptions.toCapabilities();
+    }
+
+    @Benchmark
+    public Capabilities storeAppsToCapabilities() {
+        return storeAppsOptions.toCapabilities();
+    }
+
+    @Benchmark
+    public Capabilities silverlightToCapabilities() {
+        return silverlightOptions.toCapabilities();
+    }
+
+    @Benchmark
+    public String desktopNewSessionPayload() {
+        return converter.convert(ImmutableMap.of("desiredCapabilities", desktopOptions.toCapabilities()));
+    }
+
+    @Benchmark
+    public String storeAppsNewSessionPayload() {
+        return converter.convert(ImmutableMap.of("desiredCapabilities", storeAppsOptions.toCapabilities()));
+    }
+
+    @Benchmark
+    public String silverlightNewSessionPayload() {
+        return converter.convert(ImmutableMap.of("desiredCapabilities", silverlightOptions.toCapabilities()));
+    }
+}
@@ -0,0 +1,265 @@
+package org.openqa.selenium.winium.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.winium.WiniumRecording;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process HTTP server which serves a {@link WiniumRecording} back to the client.
+ * <p>
+ * Every new session gets a session id of its own and replays the recording from the start:
+ * the n-th request of a session with a given method and path gets the response recorded for the n-th
+ * such request, with the recorded session id replaced by the new one. When the recorded responses
+ * of a request run out they are served again from the first one, so a short recording can drive
+ * a long load test.
+ * Requests which were never recorded get an "unknown command" error.
+ * <p>
+ * Responses are delayed by the recorded latency, multiplied by the latency scale,
+ * or by a fixed latency if one is set. Run it standalone with
+ * <pre>
+ * java -cp benchmarks.jar org.openqa.selenium.winium.benchmarks.ReplayWiniumServer login.wnr 9999
+ * </pre>
+ */
+public class ReplayWiniumServer {
+    private static final Pattern SESSION_PATH = Pattern.compile("^/session/([^/]+)");
+    private static final Pattern NEW_SESSION_ID = Pattern.compile("\"sessionId\"\\s*:\\s*\"([^\"]+)\"");
+    private static final String SESSION_ID_PLACEHOLDER = ":sessionId";
+    private static final byte[] UNKNOWN_COMMAND =
+            "{\"status\":9,\"value\":{\"message\":\"Command was not recorded\"}}".getBytes();
+
+    static {
+        // Without it small responses wait for the delayed ACK of the client
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, List<Response>> responses = new HashMap<String, List<Response>>();
+    private final ConcurrentMap<String, ConcurrentMap<String, AtomicInteger>> sessionCursors =
+            new ConcurrentHashMap<String, ConcurrentMap<String, AtomicInteger>>();
+    private final AtomicInteger sessionCount = new AtomicInteger();
+
+    private volatile double latencyScale = 1.0;
+    private volatile long fixedLatencyMicros = -1;
+
+    public ReplayWiniumServer(int port, WiniumRecording recording) throws IOException {
+        for (WiniumRecording.Exchange exchange : recording.getExchanges()) {
+            String body = new String(exchange.getResponseBody(), "UTF-8");
+            String sessionId = null;
+            Matcher matcher = isNewSession(exchange.getMethod(), exchange.getPath())
+                    ? NEW_SESSION_ID.matcher(body) : SESSION_PATH.matcher(exchange.getPath());
+            if (matcher.find()) {
+                sessionId = matcher.group(1);
+                body = body.replace(sessionId, SESSION_ID_PLACEHOLDER);
+            }
+
+            String key = exchange.getMethod() + " " + normalize(exchange.getPath(), sessionId);
+            List<Response> recorded = responses.get(key);
+            if (recorded == null) {
+                recorded = new ArrayList<Response>();
+                responses.put(key, recorded);
+            }
+            recorded.add(new Response(exchange.getStatus(), exchange.getLatencyMicros(), body));
+        }
+
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 128);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange);
+            }
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ReplayWiniumServer <recording> <port> [latency scale]");
+            System.exit(1);
+        }
+
+        ReplayWiniumServer server = new ReplayWiniumServer(Integer.parseInt(args[1]),
+                WiniumRecording.read(new File(args[0])));
+        if (args.length > 2) {
+            server.setLatencyScale(Double.parseDouble(args[2]));
+        }
+        server.start();
+        System.out.println("Replaying " + args[0] + " at " + server.getUrl());
+    }
+
+    /**
+     * Sets the factor applied to recorded latencies, e.g. 0 to respond right away or 2 to emulate a slower agent.
+     */
+    public void setLatencyScale(double latencyScale) {
+        this.latencyScale = latencyScale;
+    }
+
+    /**
+     * Sets a delay used for every response instead of the recorded latency, or -1 to use recorded latencies.
+     */
+    public void setFixedLatencyMicros(long fixedLatencyMicros) {
+        this.fixedLatencyMicros = fixedLatencyMicros;
+    }
+
+    /**
+     * @return Number of sessions started.
+     */
+    public int getSessionCount() {
+        return sessionCount.get();
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public URL getUrl() {
+        try {
+            return new URL("http://localhost:" + server.getAddress().getPort());
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        drain(exchange.getRequestBody());
+
+        String path = exchange.getRequestURI().getPath();
+        String sessionId;
+        if (isNewSession(exchange.getRequestMethod(), path)) {
+            sessionId = "replay-" + sessionCount.incrementAndGet();
+        } else {
+            Matcher matcher = SESSION_PATH.matcher(path);
+            sessionId = matcher.find() ? matcher.group(1) : null;
+        }
+
+        String key = exchange.getRequestMethod() + " " + normalize(path, sessionId);
+        Response response = next(sessionId, key);
+        int status;
+        byte[] body;
+        if (response == null) {
+            status = 404;
+            body = UNKNOWN_COMMAND;
+        } else {
+            status = response.status;
+            String text = response.body;
+            if (sessionId != null) {
+                text = text.replace(SESSION_ID_PLACEHOLDER, sessionId);
+            }
+            body = text.getBytes("UTF-8");
+            delay(response.latencyMicros);
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        OutputStream out = exchange.getResponseBody();
+        try {
+            out.write(body);
+        } finally {
+            out.close();
+        }
+
+        if (path.equals("/session/" + sessionId) && "DELETE".equals(exchange.getRequestMethod())) {
+            sessionCursors.remove(sessionId);
+        }
+    }
+
+    private Response next(String sessionId, String key) {
+        List<Response> recorded = responses.get(key);
+        if (recorded == null) {
+            return null;
+        }
+
+        String cursorsKey = sessionId != null ? sessionId : "";
+        ConcurrentMap<String, AtomicInteger> cursors = sessionCursors.get(cursorsKey);
+        if (cursors == null) {
+            ConcurrentMap<String, AtomicInteger> created = new ConcurrentHashMap<String, AtomicInteger>();
+            cursors = sessionCursors.putIfAbsent(cursorsKey, created);
+            if (cursors == null) {
+                cursors = created;
+            }
+        }
+        AtomicInteger cursor = cursors.get(key);
+        if (cursor == null) {
+            AtomicInteger created = new AtomicInteger();
+            cursor = cursors.putIfAbsent(key, created);
+            if (cursor == null) {
+                cursor = created;
+            }
+        }
+        return recorded.get((cursor.getAndIncrement() & Integer.MAX_VALUE) % recorded.size());
+    }
+
+    private void delay(long recordedLatencyMicros) {
+        long fixed = fixedLatencyMicros;
+        long delay = fixed >= 0 ? fixed : (long) (recordedLatencyMicros * latencyScale);
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay / 1000, (int) (delay % 1000) * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean isNewSession(String method, String path) {
+        return "POST".equals(method) && "/session".equals(path);
+    }
+
+    private static String normalize(String path, String sessionId) {
+        if (sessionId == null) {
+            return path;
+        }
+        String prefix = "/session/" + sessionId;
+        return path.startsWith(prefix) ? "/session/" + SESSION_ID_PLACEHOLDER + path.substring(prefix.length()) : path;
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[4096];
+        try {
+            while (in.read(buffer) != -1) {
+                // Request bodies are not matched, responses are replayed in order
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static class Response {
+        final int status;
+        final long latencyMicros;
+        final String body;
+
+        Response(int status, long latencyMicros, String body) {
+            this.status = status;
+            this.latencyMicros = latencyMicros;
+            this.body = body;
+        }
+    }
+}
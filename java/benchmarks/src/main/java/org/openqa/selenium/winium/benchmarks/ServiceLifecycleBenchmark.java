@@ -0,0 +1,86 @@
+package org.openqa.selenium.winium.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.io.Files;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.Platform;
+import org.openqa.selenium.net.PortProber;
+import org.openqa.selenium.winium.WiniumDriverService;
+import org.openqa.selenium.winium.WiniumServiceReadiness;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Start and stop cycle of {@link WiniumDriverService} with {@link FakeWiniumDriver} as the executable.
+ * The fake driver is a JVM, so absolute numbers include its startup; compare runs against each other.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceLifecycleBenchmark {
+    @Param({"statusProbe", "outputLine"})
+    public String readiness;
+
+    private File executable;
+    private int port;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        port = PortProber.findFreePort();
+        executable = createFakeExecutable(port);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executable.delete();
+    }
+
+    @Benchmark
+    public void startStop() throws IOException {
+        WiniumDriverService service = new WiniumDriverService.Builder()
+                .usingDriverExecutable(executable)
+                .usingPort(port)
+                .withReadinessStrategy("outputLine".equals(readiness)
+                        ? WiniumServiceReadiness.outputLine("Listening on port", 20, TimeUnit.SECONDS)
+                        : WiniumServiceReadiness.statusProbe())
+                .buildDesktopService();
+        service.start();
+        service.stop();
+    }
+
+    private static File createFakeExecutable(int port) throws IOException {
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath();
+        String command = Joiner.on(' ').join("\"" + java + "\"", "-cp",
+                "\"" + System.getProperty("java.class.path") + "\"", FakeWiniumDriver.class.getName(), port);
+
+        File file;
+        if (Platform.getCurrent().is(Platform.WINDOWS)) {
+            file = File.createTempFile("fake-winium-driver", ".bat");
+            Files.write("@echo off\r\n" + command + " %*\r\n", file, Charsets.UTF_8);
+        } else {
+            file = File.createTempFile("fake-winium-driver", ".sh");
+            Files.write("#!/bin/sh\nexec " + command + " \"$@\"\n", file, Charsets.UTF_8);
+        }
+        file.setExecutable(true);
+        file.deleteOnExit();
+        return file;
+    }
+}
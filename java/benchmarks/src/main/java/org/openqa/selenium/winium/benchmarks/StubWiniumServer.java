@@ -0,0 +1,186 @@
+package org.openqa.selenium.winium.benchmarks;
+
+import com.google.common.io.ByteStreams;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal in-process HTTP server which answers every Winium wire protocol request with success.
+ * Batch requests get a successful result per command of the batch.
+ * Used to measure client overhead without a Windows driver.
+ */
+public class StubWiniumServer {
+    private static final Pattern SESSION_ID = Pattern.compile("^/session/([^/]+)");
+    private static final String NEW_SESSION_ID = "stub-session";
+    private static final String BATCH_PATH = "/batch";
+
+    static {
+        // Without it small responses wait for the delayed ACK of the client
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private volatile String commandValue = "42";
+    private volatile long latencyMicros = 0;
+    private volatile boolean failNewSession = false;
+    private volatile boolean recordRequests = false;
+    private final List<String> requestPaths = new CopyOnWriteArrayList<String>();
+
+    public StubWiniumServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 128);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange);
+            }
+        });
+    }
+
+    /**
+     * Sets the JSON value returned by every command.
+     */
+    public void setCommandValue(String commandValue) {
+        this.commandValue = commandValue;
+    }
+
+    /**
+     * Sets the artificial delay added to every response.
+     */
+    public void setLatencyMicros(long latencyMicros) {
+        this.latencyMicros = latencyMicros;
+    }
+
+    /**
+     * Makes new session requests fail with an unknown error, as a driver which can not launch the application.
+     */
+    public void setFailNewSession(boolean failNewSession) {
+        this.failNewSession = failNewSession;
+    }
+
+    /**
+     * Starts or stops keeping the paths of received requests. Stopping drops the kept paths.
+     */
+    public void setRecordRequests(boolean recordRequests) {
+        this.recordRequests = recordRequests;
+        if (!recordRequests) {
+            requestPaths.clear();
+        }
+    }
+
+    /**
+     * @return Paths of the requests received while recording, in the order they arrived.
+     */
+    public List<String> getRequestPaths() {
+        return new ArrayList<String>(requestPaths);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public URL getUrl() {
+        try {
+            return new URL("http://localhost:" + server.getAddress().getPort());
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (recordRequests) {
+            requestPaths.add(path);
+        }
+        byte[] request = read(exchange.getRequestBody());
+
+        String body;
+        boolean shutdown = false;
+        if ("/status".equals(path)) {
+            body = "{\"status\":0,\"value\":{\"build\":{\"version\":\"stub\"}}}";
+        } else if ("/shutdown".equals(path)) {
+            body = "{\"status\":0,\"value\":null}";
+            shutdown = true;
+        } else if ("/session".equals(path) && failNewSession) {
+            body = "{\"status\":13,\"value\":{\"message\":\"Stub failed to start the session\"}}";
+        } else if ("/session".equals(path)) {
+            body = "{\"sessionId\":\"" + NEW_SESSION_ID + "\",\"status\":0,\"value\":{}}";
+        } else {
+            Matcher matcher = SESSION_ID.matcher(path);
+            String sessionId = matcher.find() ? matcher.group(1) : NEW_SESSION_ID;
+            String value = path.endsWith(BATCH_PATH) ? batchValue(request) : commandValue;
+            body = "{\"sessionId\":\"" + sessionId + "\",\"status\":0,\"value\":" + value + "}";
+        }
+
+        long delay = latencyMicros;
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay / 1000, (int) (delay % 1000) * 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        byte[] bytes = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+
+        if (shutdown) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    stop();
+                }
+            }).start();
+        }
+    }
+
+    private String batchValue(byte[] request) throws IOException {
+        JsonArray commands = new JsonParser().parse(new String(request, "UTF-8"))
+                .getAsJsonObject().getAsJsonArray("commands");
+        StringBuilder value = new StringBuilder("[");
+        for (int i = 0; i < commands.size(); i++) {
+            value.append(i > 0 ? "," : "").append("{\"status\":0,\"value\":").append(commandValue).append('}');
+        }
+        return value.append(']').toString();
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try {
+            return ByteStreams.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.openqa.selenium.winium;
+
+import com.google.common.collect.ImmutableSet;
+import org.openqa.selenium.remote.DriverCommand;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queues commands whose results are not needed by the caller and sends them together
+ * when the queue is full or when a command which needs a result is executed.
+ * Only Winium extension commands go to the batch endpoint, standard commands are sent on their own,
+ * so a driver rejecting them in a batch does not disable batching for the whole session.
+ * The queue is guarded by a lock rather than a monitor, because flushing blocks on the network
+ * and a virtual thread blocked inside a monitor pins its carrier thread.
+ */
+class CommandPipeline {
+    private static final Set<String> FIRE_AND_FORGET_COMMANDS = ImmutableSet.of(
+            DriverCommand.CLICK_ELEMENT, DriverCommand.CLEAR_ELEMENT,
+            DriverCommand.SEND_KEYS_TO_ELEMENT, DriverCommand.SEND_KEYS_TO_ACTIVE_ELEMENT,
+            DriverCommand.CLICK, DriverCommand.DOUBLE_CLICK, DriverCommand.MOUSE_DOWN, DriverCommand.MOUSE_UP,
+            DriverCommand.MOVE_TO,
+            "scrollToDataGridCell", "selectDataGridCell", "scrollToListBoxItem", "selectMenuItem",
+            "expandComboBox", "collapseComboBox", "scrollToComboBoxItem");
+
+    private final WiniumDriver driver;
+    private final int maxSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private WiniumBatch pending;
+
+    CommandPipeline(WiniumDriver driver, int maxSize) {
+        this.driver = driver;
+        this.maxSize = maxSize;
+        this.pending = driver.newBatch();
+    }
+
+    /**
+     * Queues the command if its result is not needed.
+     *
+     * @return true if the command has been queued, false if it has to be executed right away.
+     */
+    boolean offer(String commandName, Map<String, ?> parameters) {
+        if (!FIRE_AND_FORGET_COMMANDS.contains(commandName)) {
+            return false;
+        }
+
+        lock.lock();
+        try {
+            pending.addCommand(commandName, parameters);
+            if (pending.size() >= maxSize) {
+                flush();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sends all queued commands and throws the error of the first failed one.
+     */
+    void flush() {
+        lock.lock();
+        try {
+            if (pending.size() == 0) {
+                return;
+            }
+
+            WiniumBatch toSend = pending;
+            pending = driver.newBatch();
+            List<WiniumBatch.Result> results = toSend.execute();
+            for (WiniumBatch.Result result : results) {
+                result.get();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package org.openqa.selenium.winium;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableMap;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.WrapsDriver;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Typed access to a DataGrid element found by {@link WiniumDriver}.
+ * Row and column counts are cached until {@link #invalidate()} is called or the grid element goes stale.
+ * <pre>{@code
+ * DataGrid grid = new DataGrid(driver.findElementById("grid"));
+ * for (DataGrid.Cell cell : grid.readRange(0, grid.getRowCount(), 0, grid.getColumnCount())) {
+ *     String text = cell.getElement().getText();
+ * }
+ * }</pre>
+ */
+public class DataGrid {
+    private static final int DEFAULT_CHUNK_SIZE = 256;
+
+    private final WiniumDriver driver;
+    private final WebElement element;
+    private final String elementId;
+    private final Map<String, Object> idParameters;
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int rowCount = -1;
+    private int columnCount = -1;
+
+    /**
+     * Wraps the DataGrid element.
+     *
+     * @param element DataGrid element found by {@link WiniumDriver}.
+     */
+    public DataGrid(WebElement element) {
+        checkNotNull(element);
+        checkArgument(element instanceof WrapsDriver
+                        && ((WrapsDriver) element).getWrappedDriver() instanceof WiniumDriver,
+                "Element must be found by WiniumDriver: %s", element);
+        this.driver = (WiniumDriver) ((WrapsDriver) element).getWrappedDriver();
+        this.element = element;
+        this.elementId = WiniumBatch.idOf(element);
+        this.idParameters = ImmutableMap.<String, Object>of("id", elementId);
+    }
+
+    /**
+     * @return The wrapped DataGrid element.
+     */
+    public WebElement getElement() {
+        return element;
+    }
+
+    /**
+     * Sets how many cells {@link #readRange(int, int, int, int)} requests at once.
+     *
+     * @param chunkSize Number of cells per request.
+     * @return A self reference.
+     */
+    public DataGrid withChunkSize(int chunkSize) {
+        checkArgument(chunkSize > 0, "Chunk size must be positive: %s", chunkSize);
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * @return Number of rows. The value is cached until the grid changes.
+     */
+    public int getRowCount() {
+        if (rowCount < 0) {
+            rowCount = toInt(execute("getDataGridRowCount", idParameters));
+        }
+        return rowCount;
+    }
+
+    /**
+     * @return Number of columns. The value is cached until the grid changes.
+     */
+    public int getColumnCount() {
+        if (columnCount < 0) {
+            columnCount = toInt(execute("getDataGridColumnCount", idParameters));
+        }
+        return columnCount;
+    }
+
+    /**
+     * Drops cached row and column counts. Call it after an action which adds or removes rows or columns.
+     */
+    public void invalidate() {
+        rowCount = -1;
+        columnCount = -1;
+    }
+
+    /**
+     * Finds the cell element.
+     *
+     * @param row Index of the row.
+     * @param column Index of the column.
+     * @return The cell element.
+     */
+    public WebElement findCell(int row, int column) {
+        return (WebElement) execute("findDataGridCell", cellParameters(row, column));
+    }
+
+    /**
+     * Scrolls the grid to the cell.
+     *
+     * @param row Index of the row.
+     * @param column Index of the column.
+     */
+    public void scrollToCell(int row, int column) {
+        execute("scrollToDataGridCell", cellParameters(row, column));
+    }
+
+    /**
+     * Selects the cell.
+     *
+     * @param row Index of the row.
+     * @param column Index of the column.
+     */
+    public void selectCell(int row, int column) {
+        execute("selectDataGridCell", cellParameters(row, column));
+    }
+
+    /**
+     * Lazily reads cells of the range row by row. Cells are requested in chunks when the iteration reaches them,
+     * so the whole range is never held in memory at once.
+     *
+     * @param rowFrom First row, inclusive.
+     * @param rowTo Last row, exclusive.
+     * @param columnFrom First column, inclusive.
+     * @param columnTo Last column, exclusive.
+     * @return Cells of the range in row-major order.
+     */
+    public Iterable<Cell> readRange(final int rowFrom, final int rowTo, final int columnFrom, final int columnTo) {
+        checkArgument(rowFrom >= 0 && rowFrom <= rowTo, "Invalid row range [%s, %s)", rowFrom, rowTo);
+        checkArgument(columnFrom >= 0 && columnFrom <= columnTo,
+                "Invalid column range [%s, %s)", columnFrom, columnTo);
+
+        return new Iterable<Cell>() {
+            @Override
+            public Iterator<Cell> iterator() {
+                return new RangeIterator(rowFrom, rowTo, columnFrom, columnTo);
+            }
+        };
+    }
+
+    private Object execute(String commandName, Map<String, ?> parameters) {
+        try {
+            return driver.executeCommand(commandName, parameters).getValue();
+        } catch (StaleElementReferenceException e) {
+            invalidate();
+            throw e;
+        }
+    }
+
+    private Map<String, Object> cellParameters(int row, int column) {
+        return ImmutableMap.<String, Object>of("id", elementId, "row", row, "column", column);
+    }
+
+    private static int toInt(Object value) {
+        if (!(value instanceof Number)) {
+            throw new WebDriverException("Expected a number but got: " + value);
+        }
+        return ((Number) value).intValue();
+    }
+
+    private class RangeIterator extends AbstractIterator<Cell> {
+        private final int rowTo;
+        private final int columnFrom;
+        private final int columnTo;
+        private final Cell[] chunk;
+        private final int[] rows;
+        private final int[] columns;
+
+        private int nextRow;
+        private int nextColumn;
+        private int chunkLength;
+        private int chunkPosition;
+
+        RangeIterator(int rowFrom, int rowTo, int columnFrom, int columnTo) {
+            this.rowTo = rowTo;
+            this.columnFrom = columnFrom;
+            this.columnTo = columnTo;
+            this.nextRow = rowFrom;
+            this.nextColumn = columnFrom;
+            this.chunk = new Cell[chunkSize];
+            this.rows = new int[chunkSize];
+            this.columns = new int[chunkSize];
+        }
+
+        @Override
+        protected Cell computeNext() {
+            if (chunkPosition == chunkLength) {
+                readChunk();
+                if (chunkLength == 0) {
+                    return endOfData();
+                }
+            }
+
+            Cell cell = chunk[chunkPosition];
+            chunk[chunkPosition++] = null;
+            return cell;
+        }
+
+        private void readChunk() {
+            chunkPosition = 0;
+            chunkLength = 0;
+            if (columnFrom == columnTo) {
+                return;
+            }
+
+            WiniumBatch batch = driver.newBatch();
+            while (chunkLength < chunk.length && nextRow < rowTo) {
+                batch.add("findDataGridCell", cellParameters(nextRow, nextColumn));
+                rows[chunkLength] = nextRow;
+                columns[chunkLength] = nextColumn;
+                chunkLength++;
+
+                if (++nextColumn == columnTo) {
+                    nextColumn = columnFrom;
+                    nextRow++;
+                }
+            }
+
+            if (chunkLength == 0) {
+                return;
+            }
+
+            List<WiniumBatch.Result> results = batch.execute();
+            for (int i = 0; i < chunkLength; i++) {
+                WiniumBatch.Result result = results.get(i);
+                if (result.getError() instanceof StaleElementReferenceException) {
+                    invalidate();
+                }
+                chunk[i] = new Cell(rows[i], columns[i], (WebElement) result.get());
+            }
+        }
+    }
+
+    /**
+     * A cell read by {@link #readRange(int, int, int, int)}.
+     */
+    public static class Cell {
+        private final int row;
+        private final int column;
+        private final WebElement element;
+
+        Cell(int row, int column, WebElement element) {
+            this.row = row;
+            this.column = column;
+            this.element = element;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        public WebElement getElement() {
+            return element;
+        }
+    }
+}
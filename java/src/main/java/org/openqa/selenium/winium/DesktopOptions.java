@@ -1,7 +1,6 @@
 package org.openqa.selenium.winium;
 
 import org.openqa.selenium.Capabilities;
-import org.openqa.selenium.remote.DesiredCapabilities;
 
 import java.util.HashMap;
 
@@ -21,6 +20,7 @@ public class DesktopOptions implements WiniumOptions {
     private Boolean debugConnectToRunningApp;
     private KeyboardSimulatorType keyboardSimulator;
     private Integer launchDelay;
+    private volatile Capabilities capabilities;
 
     /**
      * Sets the absolute local path to an .exe file to be started.
@@ -29,6 +29,7 @@ public class DesktopOptions implements WiniumOptions {
      */
     public void setApplicationPath(String applicationPath) {
         this.applicationPath = applicationPath;
+        this.capabilities = null;
     }
 
     /**
@@ -37,6 +38,7 @@ public class DesktopOptions implements WiniumOptions {
      */
     public void setArguments(String arguments) {
         this.arguments = arguments;
+        this.capabilities = null;
     }
 
     /**
@@ -46,6 +48,7 @@ public class DesktopOptions implements WiniumOptions {
      */
     public void setDebugConnectToRunningApp(Boolean debugConnectToRunningApp) {
         this.debugConnectToRunningApp = debugConnectToRunningApp;
+        this.capabilities = null;
     }
 
     /**
@@ -54,6 +57,7 @@ public class DesktopOptions implements WiniumOptions {
      */
     public void setKeyboardSimulator(KeyboardSimulatorType keyboardSimulator) {
         this.keyboardSimulator = keyboardSimulator;
+        this.capabilities = null;
     }
 
     /**
@@ -62,13 +66,20 @@ public class DesktopOptions implements WiniumOptions {
      */
     public void setLaunchDelay(Integer launchDelay) {
         this.launchDelay = launchDelay;
+        this.capabilities = null;
     }
 
     /**
-     * Convert options to DesiredCapabilities for Winium Desktop Driver
+     * Convert options to DesiredCapabilities for Winium Desktop Driver.
+     * The capabilities can not be changed and are reused until a setter is called.
      * @return The DesiredCapabilities for Winium Desktop Driver with these options.
      */
     public Capabilities toCapabilities() {
+        Capabilities snapshot = capabilities;
+        if (snapshot != null) {
+            return snapshot;
+        }
+
         HashMap<String, Object> capabilityDictionary = new HashMap<String, Object>();
         capabilityDictionary.put(APPLICATION_PATH_OPTION, applicationPath);
 
@@ -88,6 +99,97 @@ public class DesktopOptions implements WiniumOptions {
             capabilityDictionary.put(LAUNCH_DELAY_OPTION, launchDelay);
         }
 
-        return new DesiredCapabilities(capabilityDictionary);
+        snapshot = new WiniumCapabilities(capabilityDictionary);
+        capabilities = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Builds options once, so they can be shared by threads which start sessions in parallel.
+     * The options must not be changed after they have been shared.
+     * <pre>{@code
+     * DesktopOptions options = new DesktopOptions.Builder()
+     *     .withApplicationPath("C:\\Windows\\System32\\notepad.exe")
+     *     .withLaunchDelay(500)
+     *     .build();
+     * }</pre>
+     */
+    public static class Builder {
+        private String applicationPath;
+        private String arguments;
+        private Boolean debugConnectToRunningApp;
+        private KeyboardSimulatorType keyboardSimulator;
+        private Integer launchDelay;
+
+        /**
+         * Sets the absolute local path to an .exe file to be started.
+         *
+         * @param applicationPath Absolute local path to an .exe file to be started.
+         * @return A self reference.
+         */
+        public Builder withApplicationPath(String applicationPath) {
+            this.applicationPath = applicationPath;
+            return this;
+        }
+
+        /**
+         * Sets startup arguments of the application under test.
+         *
+         * @param arguments Startup arguments of the application under test.
+         * @return A self reference.
+         */
+        public Builder withArguments(String arguments) {
+            this.arguments = arguments;
+            return this;
+        }
+
+        /**
+         * Sets a value indicating whether debug connect to running app.
+         *
+         * @param debugConnectToRunningApp Value indicating whether debug connect to running app.
+         * @return A self reference.
+         */
+        public Builder withDebugConnectToRunningApp(Boolean debugConnectToRunningApp) {
+            this.debugConnectToRunningApp = debugConnectToRunningApp;
+            return this;
+        }
+
+        /**
+         * Sets the keyboard simulator type.
+         *
+         * @param keyboardSimulator Keyboard simulator type.
+         * @return A self reference.
+         */
+        public Builder withKeyboardSimulator(KeyboardSimulatorType keyboardSimulator) {
+            this.keyboardSimulator = keyboardSimulator;
+            return this;
+        }
+
+        /**
+         * Sets the launch delay in milliseconds.
+         *
+         * @param launchDelay Launch delay in milliseconds.
+         * @return A self reference.
+         */
+        public Builder withLaunchDelay(Integer launchDelay) {
+            this.launchDelay = launchDelay;
+            return this;
+        }
+
+        /**
+         * Creates new options with the capabilities already converted.
+         *
+         * @return The new {@link DesktopOptions} object.
+         */
+        public DesktopOptions build() {
+            DesktopOptions options = new DesktopOptions();
+            options.setApplicationPath(applicationPath);
+            options.setArguments(arguments);
+            options.setDebugConnectToRunningApp(debugConnectToRunningApp);
+            options.setKeyboardSimulator(keyboardSimulator);
+            options.setLaunchDelay(launchDelay);
+            options.toCapabilities();
+            return options;
+        }
     }
 }
@@ -0,0 +1,200 @@
+package org.openqa.selenium.winium;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Receives the output of the driver process, optionally forwards it to the target stream
+ * and keeps the most recent lines in a ring buffer bounded by their total size.
+ * Writes never wait for readers: lines which do not fit are dropped from the head of the buffer.
+ * Standard output and error of the process are pumped by a thread each, so every thread collects
+ * its own current line and lines of the two streams are never mixed.
+ */
+class ServiceOutputStream extends OutputStream {
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private final OutputStream target;
+    private final int maxBytes;
+    private final ThreadLocal<ByteArrayOutputStream> currentLine = new ThreadLocal<ByteArrayOutputStream>() {
+        @Override
+        protected ByteArrayOutputStream initialValue() {
+            return new ByteArrayOutputStream();
+        }
+    };
+    private final ArrayDeque<String> recentLines = new ArrayDeque<String>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition lineAdded = lock.newCondition();
+    private long lineCount;
+    private long droppedLines;
+    private int bufferedBytes;
+
+    /**
+     * @param target Stream to forward the output to, or null to keep it only in the buffer.
+     * @param maxBytes Maximal total size of buffered lines.
+     */
+    ServiceOutputStream(OutputStream target, int maxBytes) {
+        this.target = target;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (target != null) {
+            target.write(b);
+        }
+        append(currentLine.get(), b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (target != null) {
+            target.write(b, off, len);
+        }
+        ByteArrayOutputStream line = currentLine.get();
+        for (int i = off; i < off + len; i++) {
+            append(line, b[i]);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (target != null) {
+            target.flush();
+        }
+    }
+
+    /**
+     * Waits until a line matching the pattern is written or is still in the buffer.
+     *
+     * @param pattern Pattern the line has to contain.
+     * @param timeout How long to wait.
+     * @param unit Unit of the timeout.
+     * @return true if the line has been seen, false on timeout.
+     * @throws InterruptedException If the thread has been interrupted while waiting.
+     */
+    boolean awaitLine(Pattern pattern, long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+
+        lock.lock();
+        try {
+            int unchecked = recentLines.size();
+            while (true) {
+                Iterator<String> lines = recentLines.descendingIterator();
+                for (int i = 0; i < unchecked && lines.hasNext(); i++) {
+                    if (pattern.matcher(lines.next()).find()) {
+                        return true;
+                    }
+                }
+
+                if (remaining <= 0) {
+                    return false;
+                }
+                long added = lineCount;
+                remaining = lineAdded.awaitNanos(remaining);
+                unchecked = (int) Math.min(lineCount - added, recentLines.size());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Snapshot of the buffered lines.
+     */
+    List<String> getLines() {
+        lock.lock();
+        try {
+            return new ArrayList<String>(recentLines);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops all buffered lines.
+     */
+    void clear() {
+        lock.lock();
+        try {
+            recentLines.clear();
+            bufferedBytes = 0;
+            droppedLines = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the buffered lines to the file, preceded by the number of lines dropped from the buffer.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file can not be written.
+     */
+    void writeTo(File file) throws IOException {
+        List<String> lines;
+        long dropped;
+        lock.lock();
+        try {
+            lines = new ArrayList<String>(recentLines);
+            dropped = droppedLines;
+        } finally {
+            lock.unlock();
+        }
+
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), CHARSET);
+        try {
+            if (dropped > 0) {
+                writer.write(String.format("[%d earlier lines dropped]%n", dropped));
+            }
+            for (String bufferedLine : lines) {
+                writer.write(bufferedLine);
+                writer.write(String.format("%n"));
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void append(ByteArrayOutputStream line, int b) {
+        if (b == '\n') {
+            addLine(new String(line.toByteArray(), CHARSET).trim());
+            line.reset();
+        } else {
+            line.write(b);
+            if (line.size() >= maxBytes) {
+                addLine(new String(line.toByteArray(), CHARSET));
+                line.reset();
+            }
+        }
+    }
+
+    private void addLine(String text) {
+        lock.lock();
+        try {
+            recentLines.addLast(text);
+            bufferedBytes += text.length();
+            while (bufferedBytes > maxBytes && recentLines.size() > 1) {
+                bufferedBytes -= recentLines.pollFirst().length();
+                droppedLines++;
+            }
+            lineCount++;
+            lineAdded.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package org.openqa.selenium.winium;
 
 import org.openqa.selenium.Capabilities;
-import org.openqa.selenium.remote.DesiredCapabilities;
 
 import java.util.HashMap;
 
@@ -23,6 +22,7 @@ public class SilverlightOptions implements WiniumOptions {
     private Integer innerPort;
     private Integer launchDelay;
     private Integer launchTimeout;
+    private volatile Capabilities capabilities;
 
     /**
      * Sets the absolute local path to an .xap file to be installed and launched.
@@ -31,6 +31,7 @@ public class SilverlightOptions implements WiniumOptions {
      */
     public void setApplicationPath(String applicationPath) {
         this.applicationPath = applicationPath;
+        this.capabilities = null;
     }
 
     /**
@@ -40,6 +41,7 @@ public class SilverlightOptions implements WiniumOptions {
      */
     public void setDebugConnectToRunningApp(Boolean debugConnectToRunningApp) {
         this.debugConnectToRunningApp = debugConnectToRunningApp;
+        this.capabilities = null;
     }
 
     /**
@@ -51,6 +53,7 @@ public class SilverlightOptions implements WiniumOptions {
      */
     public void setDeviceName(String deviceName) {
         this.deviceName = deviceName;
+        this.capabilities = null;
     }
 
     /**
@@ -60,6 +63,7 @@ public class SilverlightOptions implements WiniumOptions {
      */
     public void setInnerPort(Integer innerPort) {
         this.innerPort = innerPort;
+        this.capabilities = null;
     }
 
     /**
@@ -70,6 +74,7 @@ public class SilverlightOptions implements WiniumOptions {
      */
     public void setLaunchDelay(Integer launchDelay) {
         this.launchDelay = launchDelay;
+        this.capabilities = null;
     }
 
     /**
@@ -78,10 +83,16 @@ public class SilverlightOptions implements WiniumOptions {
      */
     public void setLaunchTimeout(Integer launchTimeout) {
         this.launchTimeout = launchTimeout;
+        this.capabilities = null;
     }
 
     @Override
     public Capabilities toCapabilities() {
+        Capabilities snapshot = capabilities;
+        if (snapshot != null) {
+            return snapshot;
+        }
+
         HashMap<String, Object> capabilityDictionary = new HashMap<String, Object>();
         capabilityDictionary.put(APPLICATION_PATH_OPTION, applicationPath);
 
@@ -105,6 +116,110 @@ public class SilverlightOptions implements WiniumOptions {
             capabilityDictionary.put(INNER_PORT_OPTION, innerPort);
         }
 
-        return new DesiredCapabilities(capabilityDictionary);
+        snapshot = new WiniumCapabilities(capabilityDictionary);
+        capabilities = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Builds options once, so they can be shared by threads which start sessions in parallel.
+     * The options must not be changed after they have been shared.
+     * <pre>{@code
+     * SilverlightOptions options = new SilverlightOptions.Builder()
+     *     .withApplicationPath("C:\\app.xap")
+     *     .withDeviceName("Emulator 8.1 WVGA 4 inch 512MB")
+     *     .build();
+     * }</pre>
+     */
+    public static class Builder {
+        private String applicationPath;
+        private Boolean debugConnectToRunningApp;
+        private String deviceName;
+        private Integer innerPort;
+        private Integer launchDelay;
+        private Integer launchTimeout;
+
+        /**
+         * Sets the absolute local path to an .xap file to be installed and launched.
+         *
+         * @param applicationPath Absolute local path to an .xap file.
+         * @return A self reference.
+         */
+        public Builder withApplicationPath(String applicationPath) {
+            this.applicationPath = applicationPath;
+            return this;
+        }
+
+        /**
+         * Sets a value indicating whether debug connect to running app.
+         *
+         * @param debugConnectToRunningApp Value indicating whether debug connect to running app.
+         * @return A self reference.
+         */
+        public Builder withDebugConnectToRunningApp(Boolean debugConnectToRunningApp) {
+            this.debugConnectToRunningApp = debugConnectToRunningApp;
+            return this;
+        }
+
+        /**
+         * Sets name of emulator to use for running test.
+         *
+         * @param deviceName Name of emulator to use for running test.
+         * @return A self reference.
+         */
+        public Builder withDeviceName(String deviceName) {
+            this.deviceName = deviceName;
+            return this;
+        }
+
+        /**
+         * Sets the inner port used to communicate between OuterDriver and InnerDriver.
+         *
+         * @param innerPort The inner port.
+         * @return A self reference.
+         */
+        public Builder withInnerPort(Integer innerPort) {
+            this.innerPort = innerPort;
+            return this;
+        }
+
+        /**
+         * Sets launch delay in milliseconds.
+         *
+         * @param launchDelay Launch delay in milliseconds.
+         * @return A self reference.
+         */
+        public Builder withLaunchDelay(Integer launchDelay) {
+            this.launchDelay = launchDelay;
+            return this;
+        }
+
+        /**
+         * Sets maximum timeout in milliseconds, to be waited for application to launch.
+         *
+         * @param launchTimeout Maximum timeout in milliseconds.
+         * @return A self reference.
+         */
+        public Builder withLaunchTimeout(Integer launchTimeout) {
+            this.launchTimeout = launchTimeout;
+            return this;
+        }
+
+        /**
+         * Creates new options with the capabilities already converted.
+         *
+         * @return The new {@link SilverlightOptions} object.
+         */
+        public SilverlightOptions build() {
+            SilverlightOptions options = new SilverlightOptions();
+            options.setApplicationPath(applicationPath);
+            options.setDebugConnectToRunningApp(debugConnectToRunningApp);
+            options.setDeviceName(deviceName);
+            options.setInnerPort(innerPort);
+            options.setLaunchDelay(launchDelay);
+            options.setLaunchTimeout(launchTimeout);
+            options.toCapabilities();
+            return options;
+        }
     }
 }
@@ -1,9 +1,11 @@
 package org.openqa.selenium.winium;
 
 import org.openqa.selenium.Capabilities;
-import org.openqa.selenium.remote.DesiredCapabilities;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -27,6 +29,7 @@ public class StoreAppsOptions implements WiniumOptions {
     private Map<String, String> files;
     private Integer launchDelay;
     private Integer launchTimeout;
+    private volatile Capabilities capabilities;
 
     /**
      * Sets the absolute local path to an .appx file to be installed and launched.
@@ -35,6 +38,7 @@ public class StoreAppsOptions implements WiniumOptions {
      */
     public void setApplicationPath(String applicationPath) {
         this.applicationPath = applicationPath;
+        this.capabilities = null;
     }
 
     /**
@@ -44,14 +48,17 @@ public class StoreAppsOptions implements WiniumOptions {
      */
     public void setDebugConnectToRunningApp(Boolean debugConnectToRunningApp) {
         this.debugConnectToRunningApp = debugConnectToRunningApp;
+        this.capabilities = null;
     }
 
     /**
      * Sets a list of dependencies.
+     * The list is copied, later changes of it are not seen.
      * @param dependencies List of dependencies.
      */
     public void setDependencies(List<String> dependencies) {
-        this.dependencies = dependencies;
+        this.dependencies = (dependencies == null) ? null : new ArrayList<String>(dependencies);
+        this.capabilities = null;
     }
 
     /**
@@ -63,15 +70,18 @@ public class StoreAppsOptions implements WiniumOptions {
      */
     public void setDeviceName(String deviceName) {
         this.deviceName = deviceName;
+        this.capabilities = null;
     }
 
     /**
      * Sets the files.
      * Each key of the map is "local file path", each corresponding value is "remote file path"
+     * The map is copied, later changes of it are not seen.
      * @param files files map
      */
     public void setFiles(Map<String, String> files) {
-        this.files = files;
+        this.files = (files == null) ? null : new LinkedHashMap<String, String>(files);
+        this.capabilities = null;
     }
 
     /**
@@ -82,6 +92,7 @@ public class StoreAppsOptions implements WiniumOptions {
      */
     public void setLaunchDelay(Integer launchDelay) {
         this.launchDelay = launchDelay;
+        this.capabilities = null;
     }
 
     /**
@@ -90,15 +101,21 @@ public class StoreAppsOptions implements WiniumOptions {
      */
     public void setLaunchTimeout(Integer launchTimeout) {
         this.launchTimeout = launchTimeout;
+        this.capabilities = null;
     }
 
     @Override
     public Capabilities toCapabilities() {
+        Capabilities snapshot = capabilities;
+        if (snapshot != null) {
+            return snapshot;
+        }
+
         HashMap<String, Object> capabilityDictionary = new HashMap<String, Object>();
         capabilityDictionary.put(APPLICATION_PATH_OPTION, applicationPath);
 
         if (files != null && files.size() > 0) {
-            capabilityDictionary.put(FILES_OPTION, files);
+            capabilityDictionary.put(FILES_OPTION, Collections.unmodifiableMap(files));
         }
 
         if (debugConnectToRunningApp != null) {
@@ -118,9 +135,126 @@ public class StoreAppsOptions implements WiniumOptions {
         }
 
         if (dependencies != null && dependencies.size() > 0) {
-            capabilityDictionary.put(DEPENDENCIES_OPTION, dependencies);
+            capabilityDictionary.put(DEPENDENCIES_OPTION, Collections.unmodifiableList(dependencies));
+        }
+
+        snapshot = new WiniumCapabilities(capabilityDictionary);
+        capabilities = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Builds options once, so they can be shared by threads which start sessions in parallel.
+     * The options must not be changed after they have been shared.
+     * <pre>{@code
+     * StoreAppsOptions options = new StoreAppsOptions.Builder()
+     *     .withApplicationPath("C:\\app.appx")
+     *     .withDeviceName("Mobile Emulator 10.0.10586.0 WVGA 4 inch 512MB")
+     *     .build();
+     * }</pre>
+     */
+    public static class Builder {
+        private String applicationPath;
+        private Boolean debugConnectToRunningApp;
+        private List<String> dependencies;
+        private String deviceName;
+        private Map<String, String> files;
+        private Integer launchDelay;
+        private Integer launchTimeout;
+
+        /**
+         * Sets the absolute local path to an .appx file to be installed and launched.
+         *
+         * @param applicationPath Absolute local path to an .appx file.
+         * @return A self reference.
+         */
+        public Builder withApplicationPath(String applicationPath) {
+            this.applicationPath = applicationPath;
+            return this;
+        }
+
+        /**
+         * Sets a value indicating whether debug connect to running app.
+         *
+         * @param debugConnectToRunningApp Value indicating whether debug connect to running app.
+         * @return A self reference.
+         */
+        public Builder withDebugConnectToRunningApp(Boolean debugConnectToRunningApp) {
+            this.debugConnectToRunningApp = debugConnectToRunningApp;
+            return this;
         }
 
-        return new DesiredCapabilities(capabilityDictionary);
+        /**
+         * Sets a list of dependencies.
+         *
+         * @param dependencies List of dependencies.
+         * @return A self reference.
+         */
+        public Builder withDependencies(List<String> dependencies) {
+            this.dependencies = dependencies;
+            return this;
+        }
+
+        /**
+         * Sets name of emulator to use for running test.
+         *
+         * @param deviceName Name of emulator to use for running test.
+         * @return A self reference.
+         */
+        public Builder withDeviceName(String deviceName) {
+            this.deviceName = deviceName;
+            return this;
+        }
+
+        /**
+         * Sets the files, mapping local file paths to remote file paths.
+         *
+         * @param files Files map.
+         * @return A self reference.
+         */
+        public Builder withFiles(Map<String, String> files) {
+            this.files = files;
+            return this;
+        }
+
+        /**
+         * Sets launch delay in milliseconds.
+         *
+         * @param launchDelay Launch delay in milliseconds.
+         * @return A self reference.
+         */
+        public Builder withLaunchDelay(Integer launchDelay) {
+            this.launchDelay = launchDelay;
+            return this;
+        }
+
+        /**
+         * Sets maximum timeout in milliseconds, to be waited for application to launch.
+         *
+         * @param launchTimeout Maximum timeout in milliseconds.
+         * @return A self reference.
+         */
+        public Builder withLaunchTimeout(Integer launchTimeout) {
+            this.launchTimeout = launchTimeout;
+            return this;
+        }
+
+        /**
+         * Creates new options with the capabilities already converted.
+         *
+         * @return The new {@link StoreAppsOptions} object.
+         */
+        public StoreAppsOptions build() {
+            StoreAppsOptions options = new StoreAppsOptions();
+            options.setApplicationPath(applicationPath);
+            options.setDebugConnectToRunningApp(debugConnectToRunningApp);
+            options.setDependencies(dependencies);
+            options.setDeviceName(deviceName);
+            options.setFiles(files);
+            options.setLaunchDelay(launchDelay);
+            options.setLaunchTimeout(launchTimeout);
+            options.toCapabilities();
+            return options;
+        }
     }
 }
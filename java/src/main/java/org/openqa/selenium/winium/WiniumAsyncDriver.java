@@ -0,0 +1,237 @@
+package org.openqa.selenium.winium;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.ErrorCodes;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.openqa.selenium.remote.http.JsonHttpCommandCodec;
+import org.openqa.selenium.remote.http.JsonHttpResponseCodec;
+import org.openqa.selenium.remote.internal.JsonToWebElementConverter;
+
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking facade over the session of a {@link WiniumDriver}.
+ * Every method sends the command right away and returns a future, so a single thread can keep commands
+ * of many sessions in flight. Elements returned by the facade can also be used with the wrapped driver.
+ * Like commands of the driver, a command is sent after the commands queued in the pipelined mode,
+ * invalidates the element cache if it changes the UI, is reported to the metrics listener of the executor,
+ * and fails if the driver process of the session has been restarted. The transport has its own connections,
+ * so the HTTP client factory and the hedging policy of the executor do not apply.
+ * <pre>{@code
+ * WiniumAsyncTransport transport = new WiniumAsyncTransport.Builder().build();
+ *
+ * List<ListenableFuture<WebElement>> buttons = new ArrayList<ListenableFuture<WebElement>>();
+ * for (WiniumDriver driver : drivers) {
+ *     buttons.add(new WiniumAsyncDriver(driver, transport).findElementById("OkButton"));
+ * }
+ * Futures.allAsList(buttons).get();
+ * }</pre>
+ */
+public class WiniumAsyncDriver {
+    private final WiniumDriver driver;
+    private final WiniumAsyncTransport transport;
+    private final URL remoteUrl;
+    private final JsonHttpCommandCodec commandCodec = WiniumDriverCommandExecutor.createCommandCodec();
+    private final JsonHttpResponseCodec responseCodec = new JsonHttpResponseCodec();
+    private final JsonToWebElementConverter elementConverter;
+
+    /**
+     * Creates facade sending commands of the driver's session through the transport.
+     *
+     * @param driver The driver with a started session.
+     * @param transport The transport, usually shared by many facades.
+     */
+    public WiniumAsyncDriver(WiniumDriver driver, WiniumAsyncTransport transport) {
+        this.driver = driver;
+        this.transport = transport;
+        this.remoteUrl = driver.getWiniumCommandExecutor().getAddressOfRemoteServer();
+        this.elementConverter = new JsonToWebElementConverter(driver);
+    }
+
+    /**
+     * @return The wrapped driver.
+     */
+    public WiniumDriver getDriver() {
+        return driver;
+    }
+
+    /**
+     * Sends an arbitrary command of the session.
+     *
+     * @param commandName Name of the command, e.g. {@link DriverCommand#FIND_ELEMENT} or "findDataGridCell".
+     * @param parameters Parameters of the command.
+     * @return Future completed with the command result or failed with the error returned by the driver.
+     */
+    public ListenableFuture<Object> execute(final String commandName, Map<String, ?> parameters) {
+        WiniumDriverCommandExecutor executor = driver.getWiniumCommandExecutor();
+        try {
+            driver.flush();
+            executor.checkSessionNotLost();
+        } catch (RuntimeException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+        driver.commandExecuted(commandName);
+
+        final WiniumMetricsListener listener = executor.getMetricsListener();
+        if (listener != null) {
+            listener.commandStarted(commandName);
+        }
+        final long start = System.nanoTime();
+        Command command = new Command(driver.getSessionId(), commandName, parameters);
+        ListenableFuture<HttpResponse> sent = transport.execute(remoteUrl, commandCodec.encode(command));
+        if (listener != null) {
+            Futures.addCallback(sent, new FutureCallback<HttpResponse>() {
+                @Override
+                public void onSuccess(HttpResponse httpResponse) {
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    listener.commandFinished(commandName, System.nanoTime() - start, t.getClass().getSimpleName());
+                }
+            });
+        }
+
+        return Futures.transform(sent, new Function<HttpResponse, Object>() {
+            @Override
+            public Object apply(HttpResponse httpResponse) {
+                Response response = responseCodec.decode(httpResponse);
+                if (listener != null) {
+                    int status = response.getStatus();
+                    listener.commandFinished(commandName, System.nanoTime() - start,
+                            status == ErrorCodes.SUCCESS ? null : ErrorCodes.toState(status));
+                }
+                driver.getErrorHandler().throwIfResponseFailed(response, 0);
+                return elementConverter.apply(response.getValue());
+            }
+        });
+    }
+
+    /**
+     * Finds the first element using the given mechanism.
+     *
+     * @param using The locator strategy, e.g. "id", "name", "class name" or "xpath".
+     * @param value The locator value.
+     * @return Future completed with the element.
+     */
+    public ListenableFuture<WebElement> findElement(String using, String value) {
+        return Futures.transform(execute(DriverCommand.FIND_ELEMENT, ImmutableMap.of("using", using, "value", value)),
+                new Function<Object, WebElement>() {
+                    @Override
+                    public WebElement apply(Object element) {
+                        return (WebElement) element;
+                    }
+                });
+    }
+
+    /**
+     * Finds all elements using the given mechanism.
+     *
+     * @param using The locator strategy, e.g. "id", "name", "class name" or "xpath".
+     * @param value The locator value.
+     * @return Future completed with the elements.
+     */
+    public ListenableFuture<List<WebElement>> findElements(String using, String value) {
+        return Futures.transform(execute(DriverCommand.FIND_ELEMENTS, ImmutableMap.of("using", using, "value", value)),
+                new Function<Object, List<WebElement>>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public List<WebElement> apply(Object elements) {
+                        return (List<WebElement>) elements;
+                    }
+                });
+    }
+
+    /**
+     * Finds the first element by AutomationId.
+     *
+     * @param id AutomationId of the element.
+     * @return Future completed with the element.
+     */
+    public ListenableFuture<WebElement> findElementById(String id) {
+        return findElement("id", id);
+    }
+
+    /**
+     * Finds the first element by name.
+     *
+     * @param name Name of the element.
+     * @return Future completed with the element.
+     */
+    public ListenableFuture<WebElement> findElementByName(String name) {
+        return findElement("name", name);
+    }
+
+    /**
+     * Finds the first element by class name.
+     *
+     * @param className Class name of the element.
+     * @return Future completed with the element.
+     */
+    public ListenableFuture<WebElement> findElementByClassName(String className) {
+        return findElement("class name", className);
+    }
+
+    /**
+     * Clicks the element.
+     *
+     * @param element The element to click.
+     * @return Future completed when the click is done.
+     */
+    public ListenableFuture<Object> click(WebElement element) {
+        return execute(DriverCommand.CLICK_ELEMENT, ImmutableMap.of("id", WiniumBatch.idOf(element)));
+    }
+
+    /**
+     * Types keys into the element.
+     *
+     * @param element The element to type into.
+     * @param keysToSend Keys to type.
+     * @return Future completed when the keys are typed.
+     */
+    public ListenableFuture<Object> sendKeys(WebElement element, CharSequence... keysToSend) {
+        return execute(DriverCommand.SEND_KEYS_TO_ELEMENT,
+                ImmutableMap.of("id", WiniumBatch.idOf(element), "value", keysToSend));
+    }
+
+    /**
+     * Gets the visible text of the element.
+     *
+     * @param element The element.
+     * @return Future completed with the text.
+     */
+    public ListenableFuture<String> getText(WebElement element) {
+        return asString(execute(DriverCommand.GET_ELEMENT_TEXT, ImmutableMap.of("id", WiniumBatch.idOf(element))));
+    }
+
+    /**
+     * Gets the value of the element attribute.
+     *
+     * @param element The element.
+     * @param name Name of the attribute.
+     * @return Future completed with the attribute value.
+     */
+    public ListenableFuture<String> getAttribute(WebElement element, String name) {
+        return asString(execute(DriverCommand.GET_ELEMENT_ATTRIBUTE,
+                ImmutableMap.of("id", WiniumBatch.idOf(element), "name", name)));
+    }
+
+    private static ListenableFuture<String> asString(ListenableFuture<Object> future) {
+        return Futures.transform(future, new Function<Object, String>() {
+            @Override
+            public String apply(Object value) {
+                return value == null ? null : value.toString();
+            }
+        });
+    }
+}
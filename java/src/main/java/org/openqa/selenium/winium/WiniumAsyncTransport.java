@@ -0,0 +1,235 @@
+package org.openqa.selenium.winium;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.util.EntityUtils;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Non-blocking HTTP transport shared by {@link WiniumAsyncDriver} instances.
+ * All requests are multiplexed over a fixed number of I/O threads, so the number of threads
+ * does not grow with the number of sessions or requests in flight.
+ */
+public class WiniumAsyncTransport implements Closeable {
+    private final CloseableHttpAsyncClient client;
+
+    protected WiniumAsyncTransport(int connectTimeoutMillis, int readTimeoutMillis, int maxConnectionsPerUrl,
+                                   int maxConnections, int ioThreads) {
+        IOReactorConfig reactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(ioThreads)
+                .setConnectTimeout(connectTimeoutMillis)
+                .setSoTimeout(readTimeoutMillis)
+                .setTcpNoDelay(true)
+                .setSoKeepAlive(true)
+                .build();
+
+        PoolingNHttpClientConnectionManager connectionManager;
+        try {
+            connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(reactorConfig));
+        } catch (IOReactorException e) {
+            throw new WebDriverException(e);
+        }
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerUrl);
+        connectionManager.setMaxTotal(maxConnections);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setSocketTimeout(readTimeoutMillis)
+                .setRedirectsEnabled(false)
+                .build();
+
+        client = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .build();
+        client.start();
+    }
+
+    /**
+     * Sends the request without blocking the calling thread.
+     *
+     * @param baseUrl URL of the driver, the request URI is appended to it.
+     * @param request The request to send.
+     * @return Future completed with the response or failed with the I/O error.
+     */
+    ListenableFuture<HttpResponse> execute(URL baseUrl, HttpRequest request) {
+        String uri = baseUrl.toString().replaceAll("/$", "") + request.getUri();
+        HttpRequestBase httpRequest;
+        switch (request.getMethod()) {
+            case DELETE:
+                httpRequest = new HttpDelete(uri);
+                break;
+
+            case GET:
+                httpRequest = new HttpGet(uri);
+                break;
+
+            case POST:
+                HttpPost post = new HttpPost(uri);
+                post.setEntity(new ByteArrayEntity(request.getContent()));
+                httpRequest = post;
+                break;
+
+            default:
+                throw new WebDriverException("Unsupported method: " + request.getMethod());
+        }
+
+        for (String name : request.getHeaderNames()) {
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                for (String value : request.getHeaders(name)) {
+                    httpRequest.addHeader(name, value);
+                }
+            }
+        }
+
+        final SettableFuture<HttpResponse> future = SettableFuture.create();
+        client.execute(httpRequest, new FutureCallback<org.apache.http.HttpResponse>() {
+            @Override
+            public void completed(org.apache.http.HttpResponse result) {
+                try {
+                    future.set(toResponse(result));
+                } catch (IOException e) {
+                    future.setException(e);
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                future.setException(e);
+            }
+
+            @Override
+            public void cancelled() {
+                future.cancel(false);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Closes all connections and stops I/O threads.
+     */
+    @Override
+    public void close() {
+        try {
+            client.close();
+        } catch (IOException e) {
+            throw new WebDriverException(e);
+        }
+    }
+
+    private static HttpResponse toResponse(org.apache.http.HttpResponse result) throws IOException {
+        HttpResponse response = new HttpResponse();
+        response.setStatus(result.getStatusLine().getStatusCode());
+        for (Header header : result.getAllHeaders()) {
+            response.addHeader(header.getName(), header.getValue());
+        }
+        if (result.getEntity() != null) {
+            response.setContent(EntityUtils.toByteArray(result.getEntity()));
+        }
+        return response;
+    }
+
+    public static class Builder {
+        private int connectTimeoutMillis = (int) TimeUnit.MINUTES.toMillis(2);
+        private int readTimeoutMillis = (int) TimeUnit.HOURS.toMillis(3);
+        private int maxConnectionsPerUrl = 8;
+        private int maxConnections = 200;
+        private int ioThreads = 1;
+
+        /**
+         * Sets how long to wait for a connection to the driver to be established.
+         *
+         * @param timeout Connect timeout.
+         * @param unit Unit of the timeout.
+         * @return A self reference.
+         */
+        public Builder withConnectTimeout(long timeout, TimeUnit unit) {
+            this.connectTimeoutMillis = WiniumHttpClientFactory.toIntMillis(timeout, unit);
+            return this;
+        }
+
+        /**
+         * Sets how long to wait for the driver to respond to a command.
+         *
+         * @param timeout Read timeout.
+         * @param unit Unit of the timeout.
+         * @return A self reference.
+         */
+        public Builder withReadTimeout(long timeout, TimeUnit unit) {
+            this.readTimeoutMillis = WiniumHttpClientFactory.toIntMillis(timeout, unit);
+            return this;
+        }
+
+        /**
+         * Sets the maximal number of open connections to a single driver URL.
+         *
+         * @param maxConnectionsPerUrl Maximal number of connections per driver.
+         * @return A self reference.
+         */
+        public Builder withMaxConnectionsPerUrl(int maxConnectionsPerUrl) {
+            checkArgument(maxConnectionsPerUrl > 0, "Max connections per url must be positive: %s",
+                    maxConnectionsPerUrl);
+            this.maxConnectionsPerUrl = maxConnectionsPerUrl;
+            return this;
+        }
+
+        /**
+         * Sets the maximal number of open connections to all drivers.
+         *
+         * @param maxConnections Maximal number of connections.
+         * @return A self reference.
+         */
+        public Builder withMaxConnections(int maxConnections) {
+            checkArgument(maxConnections > 0, "Max connections must be positive: %s", maxConnections);
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * Sets the number of I/O threads serving all connections.
+         *
+         * @param ioThreads Number of I/O threads.
+         * @return A self reference.
+         */
+        public Builder withIoThreads(int ioThreads) {
+            checkArgument(ioThreads > 0, "I/O thread count must be positive: %s", ioThreads);
+            this.ioThreads = ioThreads;
+            return this;
+        }
+
+        /**
+         * Creates and starts a new {@link WiniumAsyncTransport}.
+         *
+         * @return The new {@link WiniumAsyncTransport} object.
+         */
+        public WiniumAsyncTransport build() {
+            return new WiniumAsyncTransport(connectTimeoutMillis, readTimeoutMillis, maxConnectionsPerUrl,
+                    Math.max(maxConnections, maxConnectionsPerUrl), ioThreads);
+        }
+    }
+}
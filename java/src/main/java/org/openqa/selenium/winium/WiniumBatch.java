@@ -0,0 +1,374 @@
+package org.openqa.selenium.winium;
+
+import com.google.common.collect.ImmutableMap;
+import org.openqa.selenium.UnsupportedCommandException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.HasIdentity;
+import org.openqa.selenium.remote.ErrorCodes;
+import org.openqa.selenium.remote.Response;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Collects Winium extension commands and sends them to the driver as a single request.
+ * If the driver does not support batches, commands are sent one by one over the same connection.
+ * Results are returned in the order commands were added, each with its own error.
+ * <pre>{@code
+ * WebElement grid = driver.findElementById("grid");
+ * WiniumBatch batch = driver.newBatch();
+ * for (int row = 0; row < 200; row++) {
+ *     batch.findDataGridCell(grid, row, 0);
+ * }
+ *
+ * for (WiniumBatch.Result result : batch.execute()) {
+ *     WebElement cell = (WebElement) result.get();
+ * }
+ * }</pre>
+ */
+public class WiniumBatch {
+    static final String EXECUTE_BATCH_COMMAND = "executeBatch";
+
+    private final WiniumDriver driver;
+    private final List<BatchCommand> commands = new ArrayList<BatchCommand>();
+
+    WiniumBatch(WiniumDriver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Adds an arbitrary Winium extension command to the batch.
+     *
+     * @param commandName Name of the command, e.g. "findDataGridCell".
+     * @param parameters Parameters of the command.
+     * @return A self reference.
+     */
+    public WiniumBatch add(String commandName, Map<String, ?> parameters) {
+        checkArgument(WiniumDriverCommandExecutor.isWiniumCommand(commandName),
+                "Only Winium extension commands can be batched: %s", commandName);
+        return addCommand(commandName, parameters);
+    }
+
+    /**
+     * Adds any command, including standard WebDriver ones. Standard commands are not sent in the batch request
+     * but on their own, in the order they were added.
+     */
+    WiniumBatch addCommand(String commandName, Map<String, ?> parameters) {
+        commands.add(new BatchCommand(commandName, new HashMap<String, Object>(parameters)));
+        return this;
+    }
+
+    /**
+     * Adds a command finding the cell of the data grid. The result is a {@link WebElement}.
+     *
+     * @param dataGrid The data grid element.
+     * @param row Index of the row.
+     * @param column Index of the column.
+     * @return A self reference.
+     */
+    public WiniumBatch findDataGridCell(WebElement dataGrid, int row, int column) {
+        return add("findDataGridCell", ImmutableMap.of("id", idOf(dataGrid), "row", row, "column", column));
+    }
+
+    /**
+     * Adds a command getting the number of columns of the data grid.
+     *
+     * @param dataGrid The data grid element.
+     * @return A self reference.
+     */
+    public WiniumBatch getDataGridColumnCount(WebElement dataGrid) {
+        return add("getDataGridColumnCount", ImmutableMap.of("id", idOf(dataGrid)));
+    }
+
+    /**
+     * Adds a command getting the number of rows of the data grid.
+     *
+     * @param dataGrid The data grid element.
+     * @return A self reference.
+     */
+    public WiniumBatch getDataGridRowCount(WebElement dataGrid) {
+        return add("getDataGridRowCount", ImmutableMap.of("id", idOf(dataGrid)));
+    }
+
+    /**
+     * Adds a command scrolling the data grid to the cell.
+     *
+     * @param dataGrid The data grid element.
+     * @param row Index of the row.
+     * @param column Index of the column.
+     * @return A self reference.
+     */
+    public WiniumBatch scrollToDataGridCell(WebElement dataGrid, int row, int column) {
+        return add("scrollToDataGridCell", ImmutableMap.of("id", idOf(dataGrid), "row", row, "column", column));
+    }
+
+    /**
+     * Adds a command selecting the cell of the data grid.
+     *
+     * @param dataGrid The data grid element.
+     * @param row Index of the row.
+     * @param column Index of the column.
+     * @return A self reference.
+     */
+    public WiniumBatch selectDataGridCell(WebElement dataGrid, int row, int column) {
+        return add("selectDataGridCell", ImmutableMap.of("id", idOf(dataGrid), "row", row, "column", column));
+    }
+
+    /**
+     * Adds a command finding the menu item by its path. The result is a {@link WebElement}.
+     *
+     * @param menu The menu element.
+     * @param path Path to the item, e.g. "File$Open".
+     * @return A self reference.
+     */
+    public WiniumBatch findMenuItem(WebElement menu, String path) {
+        return add("findMenuItem", ImmutableMap.of("id", idOf(menu), "path", path));
+    }
+
+    /**
+     * Adds a command selecting the menu item by its path.
+     *
+     * @param menu The menu element.
+     * @param path Path to the item, e.g. "File$Open".
+     * @return A self reference.
+     */
+    public WiniumBatch selectMenuItem(WebElement menu, String path) {
+        return add("selectMenuItem", ImmutableMap.of("id", idOf(menu), "path", path));
+    }
+
+    /**
+     * Adds a command checking whether the combo box is expanded.
+     *
+     * @param comboBox The combo box element.
+     * @return A self reference.
+     */
+    public WiniumBatch isComboBoxExpanded(WebElement comboBox) {
+        return add("isComboBoxExpanded", ImmutableMap.of("id", idOf(comboBox)));
+    }
+
+    /**
+     * Adds a command expanding the combo box.
+     *
+     * @param comboBox The combo box element.
+     * @return A self reference.
+     */
+    public WiniumBatch expandComboBox(WebElement comboBox) {
+        return add("expandComboBox", ImmutableMap.of("id", idOf(comboBox)));
+    }
+
+    /**
+     * Adds a command collapsing the combo box.
+     *
+     * @param comboBox The combo box element.
+     * @return A self reference.
+     */
+    public WiniumBatch collapseComboBox(WebElement comboBox) {
+        return add("collapseComboBox", ImmutableMap.of("id", idOf(comboBox)));
+    }
+
+    /**
+     * Adds a command finding the selected item of the combo box. The result is a {@link WebElement}.
+     *
+     * @param comboBox The combo box element.
+     * @return A self reference.
+     */
+    public WiniumBatch findComboBoxSelectedItem(WebElement comboBox) {
+        return add("findComboBoxSelectedItem", ImmutableMap.of("id", idOf(comboBox)));
+    }
+
+    /**
+     * @return Number of commands in the batch.
+     */
+    public int size() {
+        return commands.size();
+    }
+
+    /**
+     * Sends all collected commands and clears the batch.
+     *
+     * @return Results in the order the commands were added.
+     */
+    public List<Result> execute() {
+        if (commands.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<BatchCommand> toSend = new ArrayList<BatchCommand>(commands);
+        commands.clear();
+
+        List<Result> results = new ArrayList<Result>(toSend.size());
+        int from = 0;
+        while (from < toSend.size()) {
+            if (!toSend.get(from).isWiniumCommand()) {
+                results.add(executeSingle(toSend.get(from++)));
+                continue;
+            }
+
+            int to = from + 1;
+            while ((to < toSend.size()) && toSend.get(to).isWiniumCommand()) {
+                to++;
+            }
+            results.addAll(executeWiniumCommands(toSend.subList(from, to)));
+            from = to;
+        }
+        return results;
+    }
+
+    private List<Result> executeWiniumCommands(List<BatchCommand> toSend) {
+        WiniumDriverCommandExecutor executor = driver.getWiniumCommandExecutor();
+        if (executor.isBatchSupported()) {
+            List<Response> responses = executeBatch(toSend);
+            if (responses != null) {
+                return toResults(responses);
+            }
+            executor.setBatchSupported(false);
+        }
+
+        List<Result> results = new ArrayList<Result>(toSend.size());
+        for (BatchCommand command : toSend) {
+            results.add(executeSingle(command));
+        }
+        return results;
+    }
+
+    private Result executeSingle(BatchCommand command) {
+        try {
+            return toResult(driver.executeRaw(command.name, command.parameters));
+        } catch (RuntimeException e) {
+            return new Result(null, e);
+        }
+    }
+
+    private List<Response> executeBatch(List<BatchCommand> toSend) {
+        List<Map<String, Object>> payload = new ArrayList<Map<String, Object>>(toSend.size());
+        for (BatchCommand command : toSend) {
+            payload.add(ImmutableMap.<String, Object>of("name", command.name, "parameters", command.parameters));
+        }
+
+        Response batchResponse;
+        try {
+            batchResponse = driver.executeRaw(EXECUTE_BATCH_COMMAND,
+                    ImmutableMap.<String, Object>of("commands", payload));
+        } catch (UnsupportedCommandException e) {
+            return null;
+        } finally {
+            // Only batches containing actions clear the element cache, read-only ones keep it.
+            for (BatchCommand command : toSend) {
+                driver.commandExecuted(command.name);
+            }
+        }
+        if (batchResponse.getStatus() == ErrorCodes.UNKNOWN_COMMAND) {
+            return null;
+        }
+        driver.getErrorHandler().throwIfResponseFailed(batchResponse, 0);
+
+        if (!(batchResponse.getValue() instanceof List)) {
+            throw new WebDriverException("Unexpected batch response: " + batchResponse.getValue());
+        }
+        List<?> values = (List<?>) batchResponse.getValue();
+        if (values.size() != toSend.size()) {
+            throw new WebDriverException(String.format("Batch of %d commands returned %d results",
+                    toSend.size(), values.size()));
+        }
+
+        List<Response> responses = new ArrayList<Response>(values.size());
+        for (Object value : values) {
+            Map<?, ?> item = (Map<?, ?>) value;
+            Response response = new Response(driver.getSessionId());
+            Object status = item.get("status");
+            response.setStatus(status instanceof Number ? ((Number) status).intValue() : ErrorCodes.SUCCESS);
+            response.setValue(item.get("value"));
+            responses.add(response);
+        }
+        return responses;
+    }
+
+    private List<Result> toResults(List<Response> responses) {
+        List<Result> results = new ArrayList<Result>(responses.size());
+        for (Response response : responses) {
+            results.add(toResult(response));
+        }
+        return results;
+    }
+
+    private Result toResult(Response response) {
+        try {
+            driver.getErrorHandler().throwIfResponseFailed(response, 0);
+            return new Result(driver.convertResponseValue(response), null);
+        } catch (RuntimeException e) {
+            return new Result(null, e);
+        }
+    }
+
+    static String idOf(WebElement element) {
+        checkNotNull(element);
+        checkArgument(element instanceof HasIdentity, "Element must be found by WiniumDriver: %s", element);
+        return ((HasIdentity) element).getId();
+    }
+
+    private static class BatchCommand {
+        private final String name;
+        private final Map<String, ?> parameters;
+
+        BatchCommand(String name, Map<String, ?> parameters) {
+            this.name = name;
+            this.parameters = parameters;
+        }
+
+        boolean isWiniumCommand() {
+            return WiniumDriverCommandExecutor.isWiniumCommand(name);
+        }
+    }
+
+    /**
+     * Result of a single command of the batch.
+     */
+    public static class Result {
+        private final Object value;
+        private final RuntimeException error;
+
+        Result(Object value, RuntimeException error) {
+            this.value = value;
+            this.error = error;
+        }
+
+        /**
+         * @return true if the command succeeded.
+         */
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * @return Value returned by the command or null if it failed.
+         */
+        public Object getValue() {
+            return value;
+        }
+
+        /**
+         * @return Error the command failed with or null if it succeeded.
+         */
+        public RuntimeException getError() {
+            return error;
+        }
+
+        /**
+         * @return Value returned by the command.
+         * @throws RuntimeException The error the command failed with.
+         */
+        public Object get() {
+            if (error != null) {
+                throw error;
+            }
+            return value;
+        }
+    }
+}
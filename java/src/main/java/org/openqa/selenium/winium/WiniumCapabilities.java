@@ -0,0 +1,75 @@
+package org.openqa.selenium.winium;
+
+import com.google.gson.JsonElement;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.Platform;
+import org.openqa.selenium.remote.BeanToJsonConverter;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+import java.util.Map;
+
+/**
+ * Capabilities snapshot of {@link WiniumOptions} which can not be changed.
+ * The snapshot keeps its JSON form, so options shared by many sessions are serialized only once.
+ * Copy it to {@link DesiredCapabilities} to add capabilities.
+ */
+class WiniumCapabilities extends DesiredCapabilities {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean frozen;
+    private transient volatile JsonElement json;
+
+    WiniumCapabilities(Map<String, ?> capabilities) {
+        super(capabilities);
+        this.frozen = true;
+    }
+
+    /**
+     * @return The capabilities converted to JSON, shared by all callers.
+     */
+    JsonElement toJsonElement() {
+        JsonElement converted = json;
+        if (converted == null) {
+            converted = new BeanToJsonConverter().convertObject(asMap());
+            json = converted;
+        }
+        return converted;
+    }
+
+    @Override
+    public void setCapability(String capabilityName, Object value) {
+        checkNotFrozen();
+        super.setCapability(capabilityName, value);
+    }
+
+    @Override
+    public void setCapability(String capabilityName, String value) {
+        checkNotFrozen();
+        super.setCapability(capabilityName, value);
+    }
+
+    @Override
+    public void setCapability(String capabilityName, boolean value) {
+        checkNotFrozen();
+        super.setCapability(capabilityName, value);
+    }
+
+    @Override
+    public void setCapability(String capabilityName, Platform value) {
+        checkNotFrozen();
+        super.setCapability(capabilityName, value);
+    }
+
+    @Override
+    public DesiredCapabilities merge(Capabilities extraCapabilities) {
+        checkNotFrozen();
+        return super.merge(extraCapabilities);
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException(
+                    "Capabilities of Winium options can not be changed, copy them to DesiredCapabilities");
+        }
+    }
+}
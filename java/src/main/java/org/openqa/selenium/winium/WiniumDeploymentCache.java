@@ -0,0 +1,255 @@
+package org.openqa.selenium.winium;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Client-side manifest of StoreApps artifacts already deployed to each device. Devices are told apart
+ * by the host of the driver and the device name, so services restarted on other ports share the manifest.
+ * Every file and dependency is identified by the SHA-256 hash of its content, and a new session only asks
+ * for deployment of artifacts which are not on the device yet:
+ * <ul>
+ * <li>a dependency is skipped if a package with the same content has been installed on the device;</li>
+ * <li>a file is skipped if the same content has been deployed to the same remote path and the session
+ * attaches to the running application (debugConnectToRunningApp), since installing the application drops
+ * its files.</li>
+ * </ul>
+ * The manifest is updated only after the session has started. Hashes are kept per local file
+ * and recomputed only when the file size or modification time changes.
+ * <pre>{@code
+ * WiniumDeploymentCache deploymentCache = new WiniumDeploymentCache();
+ *
+ * WiniumDriverCommandExecutor executor = new WiniumDriverCommandExecutor(service);
+ * executor.setDeploymentCache(deploymentCache);
+ * WiniumDriver driver = new WiniumDriver(executor, storeAppsOptions);
+ * }</pre>
+ */
+public class WiniumDeploymentCache {
+    private static final String DEBUG_CONNECT_TO_RUNNING_APP_OPTION = "debugConnectToRunningApp";
+    private static final String DEPENDENCIES_OPTION = "dependencies";
+    private static final String DEVICE_NAME_OPTION = "deviceName";
+    private static final String FILES_OPTION = "files";
+
+    private final ConcurrentMap<String, Deployment> deployments = new ConcurrentHashMap<String, Deployment>();
+    private final ConcurrentMap<String, FileHash> fileHashes = new ConcurrentHashMap<String, FileHash>();
+
+    /**
+     * Forgets everything deployed to the devices of the driver host, e.g. after emulators have been reset.
+     *
+     * @param remoteAddress URL of the driver.
+     */
+    public void invalidate(URL remoteAddress) {
+        String prefix = remoteAddress.getHost() + '|';
+        for (String target : deployments.keySet()) {
+            if (target.startsWith(prefix)) {
+                deployments.remove(target);
+            }
+        }
+    }
+
+    /**
+     * Forgets all deployments.
+     */
+    public void invalidateAll() {
+        deployments.clear();
+    }
+
+    /**
+     * Removes already deployed artifacts from the capabilities of a new session command.
+     *
+     * @param remoteAddress URL of the driver the session is started on.
+     * @param command The new session command.
+     * @return The plan to send the reduced command and record the deployment once the session has started.
+     */
+    Plan plan(URL remoteAddress, Command command) {
+        Object desired = command.getParameters().get("desiredCapabilities");
+        if (!(desired instanceof Capabilities)) {
+            return new Plan(command, null, false, null, null);
+        }
+
+        Capabilities capabilities = (Capabilities) desired;
+        String target = remoteAddress.getHost() + '|' + capabilities.getCapability(DEVICE_NAME_OPTION);
+        Deployment deployment = deploymentOf(target);
+        boolean installsApplication = !Boolean.TRUE.equals(
+                capabilities.getCapability(DEBUG_CONNECT_TO_RUNNING_APP_OPTION));
+
+        Map<String, String> fileHashesToDeploy = new HashMap<String, String>();
+        Map<String, String> filesToDeploy = new LinkedHashMap<String, String>();
+        Object files = capabilities.getCapability(FILES_OPTION);
+        if (files instanceof Map) {
+            for (Map.Entry<?, ?> file : ((Map<?, ?>) files).entrySet()) {
+                String localPath = String.valueOf(file.getKey());
+                String remotePath = String.valueOf(file.getValue());
+                String hash = hashOf(localPath);
+                if (installsApplication || (hash == null) || !hash.equals(deployment.getFile(remotePath))) {
+                    filesToDeploy.put(localPath, remotePath);
+                }
+                fileHashesToDeploy.put(remotePath, hash);
+            }
+        }
+
+        Set<String> dependencyHashes = new HashSet<String>();
+        List<String> dependenciesToDeploy = new ArrayList<String>();
+        Object dependencies = capabilities.getCapability(DEPENDENCIES_OPTION);
+        if (dependencies instanceof Collection) {
+            for (Object dependency : (Collection<?>) dependencies) {
+                String hash = hashOf(dependency);
+                if ((hash == null) || !deployment.hasDependency(hash)) {
+                    dependenciesToDeploy.add(String.valueOf(dependency));
+                }
+                if (hash != null) {
+                    dependencyHashes.add(hash);
+                }
+            }
+        }
+
+        DesiredCapabilities reduced = new DesiredCapabilities(capabilities);
+        if (files instanceof Map) {
+            reduced.setCapability(FILES_OPTION, filesToDeploy);
+        }
+        if (dependencies instanceof Collection) {
+            reduced.setCapability(DEPENDENCIES_OPTION, dependenciesToDeploy);
+        }
+
+        Map<String, Object> parameters = new HashMap<String, Object>(command.getParameters());
+        parameters.put("desiredCapabilities", reduced);
+        return new Plan(new Command(command.getSessionId(), command.getName(), parameters), deployment,
+                installsApplication, fileHashesToDeploy, dependencyHashes);
+    }
+
+    private Deployment deploymentOf(String target) {
+        Deployment deployment = deployments.get(target);
+        if (deployment == null) {
+            Deployment newDeployment = new Deployment();
+            deployment = deployments.putIfAbsent(target, newDeployment);
+            if (deployment == null) {
+                deployment = newDeployment;
+            }
+        }
+        return deployment;
+    }
+
+    /**
+     * @param path Local path of the artifact.
+     * @return Hash of the content or null if there is no such file.
+     */
+    private String hashOf(Object path) {
+        if (path == null) {
+            return null;
+        }
+
+        File file = new File(path.toString());
+        if (!file.isFile()) {
+            return null;
+        }
+
+        String key = file.getAbsolutePath();
+        long size = file.length();
+        long lastModified = file.lastModified();
+        FileHash cached = fileHashes.get(key);
+        if ((cached != null) && (cached.size == size) && (cached.lastModified == lastModified)) {
+            return cached.hash;
+        }
+
+        try {
+            String hash = Files.hash(file, Hashing.sha256()).toString();
+            fileHashes.put(key, new FileHash(size, lastModified, hash));
+            return hash;
+        } catch (IOException e) {
+            throw new WebDriverException("Failed to hash " + file, e);
+        }
+    }
+
+    private static class FileHash {
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+
+        FileHash(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Artifacts deployed to a single device of a single driver.
+     */
+    private static class Deployment {
+        private final Map<String, String> files = new HashMap<String, String>();
+        private final Set<String> dependencies = new HashSet<String>();
+
+        synchronized String getFile(String remotePath) {
+            return files.get(remotePath);
+        }
+
+        synchronized boolean hasDependency(String hash) {
+            return dependencies.contains(hash);
+        }
+
+        synchronized void record(boolean installedApplication, Map<String, String> fileHashes,
+                                 Set<String> dependencyHashes) {
+            if (installedApplication) {
+                files.clear();
+            }
+            for (Map.Entry<String, String> file : fileHashes.entrySet()) {
+                if (file.getValue() == null) {
+                    files.remove(file.getKey());
+                } else {
+                    files.put(file.getKey(), file.getValue());
+                }
+            }
+            dependencies.addAll(dependencyHashes);
+        }
+    }
+
+    static class Plan {
+        private final Command command;
+        private final Deployment deployment;
+        private final boolean installsApplication;
+        private final Map<String, String> fileHashes;
+        private final Set<String> dependencyHashes;
+
+        Plan(Command command, Deployment deployment, boolean installsApplication, Map<String, String> fileHashes,
+             Set<String> dependencyHashes) {
+            this.command = command;
+            this.deployment = deployment;
+            this.installsApplication = installsApplication;
+            this.fileHashes = fileHashes;
+            this.dependencyHashes = dependencyHashes;
+        }
+
+        Command getCommand() {
+            return command;
+        }
+
+        /**
+         * Records the artifacts as deployed, called after the session has started.
+         */
+        void commit() {
+            if (deployment == null) {
+                return;
+            }
+
+            deployment.record(installsApplication, fileHashes, dependencyHashes);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package org.openqa.selenium.winium;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs the same application on several StoreApps or Silverlight devices at once.
+ * Every device gets its own {@link WiniumDriverService}, and all services, application deployments
+ * (including "files" and "dependencies") and sessions are started in parallel.
+ * Commands can be broadcast to all devices or sent to a single one.
+ * <pre>{@code
+ * StoreAppsOptions options = new StoreAppsOptions();
+ * options.setApplicationPath("C:\\app.appx");
+ * options.setFiles(files);
+ *
+ * WiniumDeviceGroup group = new WiniumDeviceGroup.Builder()
+ *     .withDevices("Mobile Emulator 10.0.10586.0 WVGA 4 inch 512MB", "Mobile Emulator 10.0.10586.0 1080p 6 inch 2GB")
+ *     .buildStoreAppsGroup(options);
+ *
+ * Map<String, String> titles = group.broadcast(new Function<WiniumDriver, String>() {
+ *     public String apply(WiniumDriver driver) {
+ *         return driver.findElementById("Title").getText();
+ *     }
+ * });
+ *
+ * group.close();
+ * }</pre>
+ */
+public class WiniumDeviceGroup implements Closeable {
+    private static final Logger LOG = Logger.getLogger(WiniumDeviceGroup.class.getName());
+    private static final String DEVICE_NAME_OPTION = "deviceName";
+
+    private final Map<String, WiniumDriver> drivers;
+    private final ExecutorService executor;
+
+    protected WiniumDeviceGroup(Map<String, WiniumDriverService> services, final WiniumOptions options,
+                                final WiniumDeploymentCache deploymentCache) {
+        this.executor = Executors.newFixedThreadPool(services.size(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("winium-device-group-%d").build());
+
+        Map<String, Callable<WiniumDriver>> starts = new LinkedHashMap<String, Callable<WiniumDriver>>();
+        for (final Map.Entry<String, WiniumDriverService> entry : services.entrySet()) {
+            starts.put(entry.getKey(), new Callable<WiniumDriver>() {
+                @Override
+                public WiniumDriver call() {
+                    WiniumDriverCommandExecutor executor = new WiniumDriverCommandExecutor(entry.getValue());
+                    executor.setDeploymentCache(deploymentCache);
+                    return new WiniumDriver(executor, new DeviceOptions(options, entry.getKey()));
+                }
+            });
+        }
+
+        Map<String, WiniumDriver> started = new LinkedHashMap<String, WiniumDriver>();
+        try {
+            invokeAll(starts, started);
+        } catch (RuntimeException e) {
+            quitAll(started);
+            executor.shutdownNow();
+            throw e;
+        }
+        this.drivers = Collections.unmodifiableMap(started);
+    }
+
+    /**
+     * @return Names of the devices in the order they were added.
+     */
+    public List<String> getDeviceNames() {
+        return ImmutableList.copyOf(drivers.keySet());
+    }
+
+    /**
+     * Returns the driver of a single device, to run commands on that device only.
+     *
+     * @param deviceName Name of the device.
+     * @return The driver of the device.
+     */
+    public WiniumDriver getDriver(String deviceName) {
+        WiniumDriver driver = drivers.get(deviceName);
+        checkArgument(driver != null, "Unknown device: %s", deviceName);
+        return driver;
+    }
+
+    /**
+     * @return Drivers by device name.
+     */
+    public Map<String, WiniumDriver> getDrivers() {
+        return drivers;
+    }
+
+    /**
+     * Runs the action on all devices in parallel and waits for all of them to finish.
+     *
+     * @param action The action to run with the driver of every device.
+     * @param <T> Type of the action result.
+     * @return Results by device name.
+     * @throws WebDriverException If the action fails on any device, after all devices have finished.
+     */
+    public <T> Map<String, T> broadcast(final Function<WiniumDriver, T> action) {
+        checkNotNull(action);
+        Map<String, Callable<T>> tasks = new LinkedHashMap<String, Callable<T>>();
+        for (final Map.Entry<String, WiniumDriver> entry : drivers.entrySet()) {
+            tasks.put(entry.getKey(), new Callable<T>() {
+                @Override
+                public T call() {
+                    return action.apply(entry.getValue());
+                }
+            });
+        }
+
+        Map<String, T> results = new LinkedHashMap<String, T>();
+        invokeAll(tasks, results);
+        return results;
+    }
+
+    /**
+     * Quits the sessions and stops the services of all devices.
+     */
+    @Override
+    public void close() {
+        try {
+            quitAll(drivers);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void quitAll(Map<String, WiniumDriver> toQuit) {
+        Map<String, Callable<Void>> quits = new LinkedHashMap<String, Callable<Void>>();
+        for (final Map.Entry<String, WiniumDriver> entry : toQuit.entrySet()) {
+            quits.put(entry.getKey(), new Callable<Void>() {
+                @Override
+                public Void call() {
+                    entry.getValue().quit();
+                    return null;
+                }
+            });
+        }
+
+        try {
+            invokeAll(quits, new LinkedHashMap<String, Void>());
+        } catch (WebDriverException e) {
+            LOG.log(Level.WARNING, "Failed to quit some of the devices", e);
+        }
+    }
+
+    private <T> void invokeAll(Map<String, Callable<T>> tasks, Map<String, T> results) {
+        Map<String, Future<T>> futures = new LinkedHashMap<String, Future<T>>();
+        for (Map.Entry<String, Callable<T>> task : tasks.entrySet()) {
+            futures.put(task.getKey(), executor.submit(task.getValue()));
+        }
+
+        List<String> failedDevices = new ArrayList<String>();
+        Throwable firstError = null;
+        for (Map.Entry<String, Future<T>> future : futures.entrySet()) {
+            try {
+                results.put(future.getKey(), future.getValue().get());
+            } catch (ExecutionException e) {
+                failedDevices.add(future.getKey());
+                if (firstError == null) {
+                    firstError = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WebDriverException(e);
+            }
+        }
+
+        if (!failedDevices.isEmpty()) {
+            throw new WebDriverException("Failed on devices: " + failedDevices, firstError);
+        }
+    }
+
+    /**
+     * Options of the group with the device name replaced.
+     */
+    private static class DeviceOptions implements WiniumOptions {
+        private final WiniumOptions options;
+        private final String deviceName;
+
+        DeviceOptions(WiniumOptions options, String deviceName) {
+            this.options = options;
+            this.deviceName = deviceName;
+        }
+
+        @Override
+        public Capabilities toCapabilities() {
+            DesiredCapabilities capabilities = new DesiredCapabilities(options.toCapabilities());
+            capabilities.setCapability(DEVICE_NAME_OPTION, deviceName);
+            return capabilities;
+        }
+    }
+
+    public static class Builder {
+        private final List<String> deviceNames = new ArrayList<String>();
+        private WiniumDriverService.Builder serviceBuilder = null;
+        private WiniumDeploymentCache deploymentCache = null;
+
+        /**
+         * Adds devices to run the application on.
+         *
+         * @param deviceNames Names of the devices, as accepted by the deviceName option.
+         * @return A self reference.
+         */
+        public Builder withDevices(String... deviceNames) {
+            for (String deviceName : deviceNames) {
+                checkArgument(!this.deviceNames.contains(checkNotNull(deviceName)), "Duplicate device: %s",
+                        deviceName);
+                this.deviceNames.add(deviceName);
+            }
+            return this;
+        }
+
+        /**
+         * Sets the builder of the per device services, e.g. to configure the executable or logging.
+         * Every service gets a free port of its own regardless of the port configured in the builder.
+         *
+         * @param serviceBuilder The service builder.
+         * @return A self reference.
+         */
+        public Builder withServiceBuilder(WiniumDriverService.Builder serviceBuilder) {
+            this.serviceBuilder = checkNotNull(serviceBuilder);
+            return this;
+        }
+
+        /**
+         * Sets the manifest used to skip deployment of files and dependencies already on the devices.
+         *
+         * @param deploymentCache The manifest, e.g. shared by consecutive groups.
+         * @return A self reference.
+         */
+        public Builder withDeploymentCache(WiniumDeploymentCache deploymentCache) {
+            this.deploymentCache = deploymentCache;
+            return this;
+        }
+
+        /**
+         * Starts a Winium StoreApps service and session for every device.
+         *
+         * @param options Options used for all devices, the device name is replaced per device.
+         * @return The new {@link WiniumDeviceGroup} object with all sessions started.
+         */
+        public WiniumDeviceGroup buildStoreAppsGroup(StoreAppsOptions options) {
+            checkNotNull(options);
+            checkArgument(!deviceNames.isEmpty(), "At least one device is required");
+
+            Map<String, WiniumDriverService> services = new LinkedHashMap<String, WiniumDriverService>();
+            for (String deviceName : deviceNames) {
+                services.put(deviceName, serviceBuilder().buildStoreAppsService());
+            }
+            return new WiniumDeviceGroup(services, options, deploymentCache);
+        }
+
+        /**
+         * Starts a Winium WindowsPhone service and session for every device.
+         *
+         * @param options Options used for all devices, the device name is replaced per device.
+         * @return The new {@link WiniumDeviceGroup} object with all sessions started.
+         */
+        public WiniumDeviceGroup buildSilverlightGroup(SilverlightOptions options) {
+            checkNotNull(options);
+            checkArgument(!deviceNames.isEmpty(), "At least one device is required");
+
+            Map<String, WiniumDriverService> services = new LinkedHashMap<String, WiniumDriverService>();
+            for (String deviceName : deviceNames) {
+                services.put(deviceName, serviceBuilder().buildSilverlightService());
+            }
+            return new WiniumDeviceGroup(services, options, deploymentCache);
+        }
+
+        private WiniumDriverService.Builder serviceBuilder() {
+            if (serviceBuilder == null) {
+                serviceBuilder = new WiniumDriverService.Builder();
+            }
+            return serviceBuilder.usingAnyFreePort();
+        }
+    }
+}
@@ -1,8 +1,17 @@
 package org.openqa.selenium.winium;
 
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.ErrorCodes;
 import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.Response;
 
+import java.io.IOException;
 import java.net.URL;
+import java.util.Map;
 
 /**
  * Provides a mechanism to write tests using Winium driver.
@@ -55,6 +64,10 @@ import java.net.URL;
  * }</pre>
  */
 public class WiniumDriver extends RemoteWebDriver {
+    private static final int MAX_PIPELINED_COMMANDS = 64;
+
+    private volatile WiniumElementCache elementCache;
+    private volatile CommandPipeline pipeline;
 
     /**
      * Initializes a new instance of the {@link WiniumDriver} class using the specified options
@@ -75,6 +88,27 @@ public class WiniumDriver extends RemoteWebDriver {
         super(new WiniumDriverCommandExecutor(service), options.toCapabilities());
     }
 
+    /**
+     * Initializes a new instance of the {@link WiniumDriver} class using a service taken from the pool.
+     * The service is returned to the pool when the driver quits.
+     *
+     * @param servicePool The {@link WiniumDriverServicePool} to take the service from.
+     * @param options The {@link WiniumOptions} used to initialize the driver.
+     */
+    public WiniumDriver(WiniumDriverServicePool servicePool, WiniumOptions options) {
+        super(new WiniumDriverCommandExecutor(servicePool.acquire(), servicePool), options.toCapabilities());
+    }
+
+    /**
+     * Initializes a new instance of the {@link WiniumDriver} class using the specified command executor and options.
+     *
+     * @param executor The {@link WiniumDriverCommandExecutor} used to send commands to the driver.
+     * @param options The {@link WiniumOptions} used to initialize the driver.
+     */
+    public WiniumDriver(WiniumDriverCommandExecutor executor, WiniumOptions options) {
+        super(executor, options.toCapabilities());
+    }
+
     /**
      * Initializes a new instance of the {@link WiniumDriver} lass using the specified remote address and options.
      * @param remoteAddress URL containing the address of the WiniumDriver remote server (e.g. http://127.0.0.1:4444/wd/hub).
@@ -84,6 +118,180 @@ public class WiniumDriver extends RemoteWebDriver {
         super(new WiniumDriverCommandExecutor(remoteAddress), options.toCapabilities());
     }
 
+    /**
+     * Creates a new empty batch of Winium extension commands for this driver.
+     *
+     * @return The new {@link WiniumBatch} object.
+     */
+    public WiniumBatch newBatch() {
+        return new WiniumBatch(this);
+    }
+
+    /**
+     * Enables caching of elements found by locator. Pass null to disable the cache.
+     *
+     * @param elementCache The {@link WiniumElementCache} used only by this driver, or null.
+     */
+    public void setElementCache(WiniumElementCache elementCache) {
+        this.elementCache = elementCache;
+    }
+
+    /**
+     * @return The element cache or null if caching is disabled.
+     */
+    public WiniumElementCache getElementCache() {
+        return elementCache;
+    }
+
+    /**
+     * Enables or disables the pipelined mode. In the pipelined mode commands whose results are not used,
+     * e.g. clicks, typing and selection of items, return immediately and are queued. The queue is sent
+     * before the next command which returns a result, or on {@link #flush()}: queued Winium extension commands
+     * in a single batch, standard WebDriver commands one by one in between.
+     * Errors of queued commands are thrown by the command which sends the queue.
+     * Disabling the pipelined mode flushes the queue.
+     *
+     * @param pipelined true to queue fire-and-forget commands, false to send every command right away (default).
+     */
+    public void setPipelined(boolean pipelined) {
+        if (pipelined) {
+            if (pipeline == null) {
+                pipeline = new CommandPipeline(this, MAX_PIPELINED_COMMANDS);
+            }
+        } else {
+            CommandPipeline current = pipeline;
+            pipeline = null;
+            if (current != null) {
+                current.flush();
+            }
+        }
+    }
+
+    /**
+     * @return true if fire-and-forget commands are queued.
+     */
+    public boolean isPipelined() {
+        return pipeline != null;
+    }
+
+    /**
+     * Sends all commands queued in the pipelined mode and waits for their results.
+     *
+     * @throws WebDriverException The error of the first failed command.
+     */
+    public void flush() {
+        CommandPipeline current = pipeline;
+        if (current != null) {
+            current.flush();
+        }
+    }
+
+    @Override
+    protected Response execute(String driverCommand, Map<String, ?> parameters) {
+        CommandPipeline current = pipeline;
+        if (current == null) {
+            return executeCached(driverCommand, parameters);
+        }
+
+        if (current.offer(driverCommand, parameters)) {
+            WiniumElementCache cache = elementCache;
+            if (cache != null) {
+                cache.commandExecuted(driverCommand);
+            }
+            Response response = new Response(getSessionId());
+            response.setStatus(ErrorCodes.SUCCESS);
+            return response;
+        }
+
+        if (DriverCommand.QUIT.equals(driverCommand)) {
+            pipeline = null;
+            try {
+                current.flush();
+            } catch (RuntimeException e) {
+                executeCached(driverCommand, parameters);
+                throw e;
+            }
+            return executeCached(driverCommand, parameters);
+        }
+
+        current.flush();
+        return executeCached(driverCommand, parameters);
+    }
+
+    private Response executeCached(String driverCommand, Map<String, ?> parameters) {
+        WiniumElementCache cache = elementCache;
+        if (cache == null) {
+            return super.execute(driverCommand, parameters);
+        }
+
+        WiniumElementCache.ElementKey key = WiniumElementCache.keyOf(driverCommand, parameters);
+        if (key != null) {
+            WebElement element = cache.get(key);
+            if (element != null) {
+                Response response = new Response(getSessionId());
+                response.setStatus(ErrorCodes.SUCCESS);
+                response.setValue(element);
+                return response;
+            }
+        }
+
+        try {
+            Response response = super.execute(driverCommand, parameters);
+            if (key != null) {
+                cache.put(key, response.getValue());
+            }
+            return response;
+        } catch (StaleElementReferenceException e) {
+            cache.elementStale(parameters.get("id"));
+            throw e;
+        } finally {
+            cache.commandExecuted(driverCommand);
+        }
+    }
+
+    WiniumDriverCommandExecutor getWiniumCommandExecutor() {
+        return (WiniumDriverCommandExecutor) getCommandExecutor();
+    }
+
+    Response executeCommand(String commandName, Map<String, ?> parameters) {
+        return execute(commandName, parameters);
+    }
+
+    /**
+     * Sends the command and returns the response without checking its status.
+     * Commands queued in the pipelined mode are sent first, so they are not overtaken by this one.
+     * The pipeline sending its own queue finds it already empty.
+     */
+    Response executeRaw(String commandName, Map<String, ?> parameters) {
+        flush();
+        WiniumElementCache cache = elementCache;
+        try {
+            Response response = getCommandExecutor().execute(new Command(getSessionId(), commandName, parameters));
+            if ((cache != null) && (response.getStatus() == ErrorCodes.STALE_ELEMENT_REFERENCE)) {
+                cache.elementStale(parameters.get("id"));
+            }
+            return response;
+        } catch (IOException e) {
+            throw new WebDriverException(e);
+        } finally {
+            commandExecuted(commandName);
+        }
+    }
+
+    /**
+     * Lets the element cache see a command sent without {@link #executeRaw(String, Map)}, e.g. inside a batch.
+     */
+    void commandExecuted(String commandName) {
+        WiniumElementCache cache = elementCache;
+        if (cache != null) {
+            cache.commandExecuted(commandName);
+        }
+    }
+
+    Object convertResponseValue(Response response) {
+        return getElementConverter().apply(response.getValue());
+    }
+
     private static WiniumDriverService createDefaultService(Class<? extends WiniumOptions> optionsType) {
         if (optionsType == DesktopOptions.class) {
             return WiniumDriverService.createDesktopService();
@@ -1,16 +1,26 @@
 package org.openqa.selenium.winium;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Throwables;
 import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.remote.*;
+import org.openqa.selenium.remote.http.HttpClient;
 import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.openqa.selenium.remote.http.JsonHttpCommandCodec;
+import org.openqa.selenium.remote.internal.ApacheHttpClient;
 import org.openqa.selenium.remote.service.DriverCommandExecutor;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.ConnectException;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 /**
@@ -18,76 +28,424 @@ import java.util.Map;
  */
 public class WiniumDriverCommandExecutor extends HttpCommandExecutor {
     private static final Map<String, CommandInfo> WINIUM_COMMAND_NAME_TO_URL;
+    private static final Map<String, String> WINIUM_COMMAND_NAME_TO_PATH;
+    private static final String DESIRED_CAPABILITIES = "desiredCapabilities";
 
     private final WiniumDriverService service;
+    private final WiniumDriverServicePool servicePool;
+    private final HttpClient.Factory clientFactory;
+    private final AtomicBoolean serviceReleased = new AtomicBoolean();
+
+    private volatile boolean batchSupported = true;
+    private volatile boolean waitForSupported = true;
+    private volatile WiniumMetricsListener metricsListener;
+    private volatile WiniumDeploymentCache deploymentCache;
+    private volatile int sessionGeneration = -1;
+    private volatile WiniumHedgingPolicy hedgingPolicy;
+    private volatile long implicitWaitMillis;
+    private volatile HttpClient readerClient;
+    private volatile JsonHttpCommandCodec readerCodec;
 
     static {
         WINIUM_COMMAND_NAME_TO_URL = new HashMap<String, CommandInfo>();
+        WINIUM_COMMAND_NAME_TO_PATH = new HashMap<String, String>();
+
+        addWiniumCommand("findDataGridCell", "/session/:sessionId/element/:id/datagrid/cell/:row/:column");
+        addWiniumCommand("getDataGridColumnCount", "/session/:sessionId/element/:id/datagrid/column/count");
+        addWiniumCommand("getDataGridRowCount", "/session/:sessionId/element/:id/datagrid/row/count");
+        addWiniumCommand("scrollToDataGridCell", "/session/:sessionId/element/:id/datagrid/scroll/:row/:column");
+        addWiniumCommand("selectDataGridCell", "/session/:sessionId/element/:id/datagrid/select/:row/:column");
+
+        addWiniumCommand("scrollToListBoxItem", "/session/:sessionId/element/:id/listbox/scroll");
+
+        addWiniumCommand("findMenuItem", "/session/:sessionId/element/:id/menu/item/:path");
+        addWiniumCommand("selectMenuItem", "/session/:sessionId/element/:id/menu/select/:path");
+
+        addWiniumCommand("isComboBoxExpanded", "/session/:sessionId/element/:id/combobox/expanded");
+        addWiniumCommand("expandComboBox", "/session/:sessionId/element/:id/combobox/expand");
+        addWiniumCommand("collapseComboBox", "/session/:sessionId/element/:id/combobox/collapse");
+        addWiniumCommand("findComboBoxSelectedItem", "/session/:sessionId/element/:id/combobox/items/selected");
+        addWiniumCommand("scrollToComboBoxItem", "/session/:sessionId/element/:id/combobox/scroll");
+
+        addWiniumCommand(WiniumWait.WAIT_FOR_COMMAND, "/session/:sessionId/element/wait");
+
+        addWiniumCommand(WiniumBatch.EXECUTE_BATCH_COMMAND, "/session/:sessionId/batch");
 
-        WINIUM_COMMAND_NAME_TO_URL.put("findDataGridCell",
-                new CommandInfo("/session/:sessionId/element/:id/datagrid/cell/:row/:column", HttpMethod.POST));
-        WINIUM_COMMAND_NAME_TO_URL.put("getDataGridColumnCount",
-                new CommandInfo("/session/:sessionId/element/:id/datagrid/column/count", HttpMethod.POST));
-        WINIUM_COMMAND_NAME_TO_URL.put("getDataGridRowCount",
-                new CommandInfo("/session/:sessionId/element/:id/datagrid/row/count", HttpMethod.POST));
-        WINIUM_COMMAND_NAME_TO_URL.put("scrollToDataGridCell",
-                new CommandInfo("/session/:sessionId/element/:id/datagrid/scroll/:row/:column", HttpMethod.POST));
-        WINIUM_COMMAND_NAME_TO_URL.put("selectDataGridCell",
-                new CommandInfo("/session/:sessionId/element/:id/datagrid/select/:row/:column", HttpMethod.POST));
-
-        WINIUM_COMMAND_NAME_TO_URL.put("scrollToListBoxItem",
-                new CommandInfo("/session/:sessionId/element/:id/listbox/scroll", HttpMethod.POST));
-
-        WINIUM_COMMAND_NAME_TO_URL.put("findMenuItem",
-                new CommandInfo("/session/:sessionId/element/:id/menu/item/:path", HttpMethod.POST));
-        WINIUM_COMMAND_NAME_TO_URL.put("selectMenuItem",
-                new CommandInfo("/session/:sessionId/element/:id/menu/select/:path", HttpMethod.POST));
-
-        WINIUM_COMMAND_NAME_TO_URL.put("isComboBoxExpanded",
-                new CommandInfo("/session/:sessionId/element/:id/combobox/expanded", HttpMethod.POST));
-        WINIUM_COMMAND_NAME_TO_URL.put("expandComboBox",
-                new CommandInfo("/session/:sessionId/element/:id/combobox/expand", HttpMethod.POST));
-        WINIUM_COMMAND_NAME_TO_URL.put("collapseComboBox",
-                new CommandInfo("/session/:sessionId/element/:id/combobox/collapse", HttpMethod.POST));
-        WINIUM_COMMAND_NAME_TO_URL.put("findComboBoxSelectedItem",
-                new CommandInfo("/session/:sessionId/element/:id/combobox/items/selected", HttpMethod.POST));
-        WINIUM_COMMAND_NAME_TO_URL.put("scrollToComboBoxItem",
-                new CommandInfo("/session/:sessionId/element/:id/combobox/scroll", HttpMethod.POST));
+        addWiniumCommand(WiniumUiTree.SNAPSHOT_TREE_COMMAND, "/session/:sessionId/tree");
     }
 
     public WiniumDriverCommandExecutor(WiniumDriverService driverService) {
-        super(WINIUM_COMMAND_NAME_TO_URL, driverService.getUrl());
-        service = driverService;
+        this(driverService, null, null);
+    }
+
+    /**
+     * Creates executor for the service which sends commands using clients from the given factory.
+     *
+     * @param driverService The service to send commands to.
+     * @param clientFactory Factory of HTTP clients, e.g. {@link WiniumHttpClientFactory}.
+     */
+    public WiniumDriverCommandExecutor(WiniumDriverService driverService, HttpClient.Factory clientFactory) {
+        this(driverService, null, clientFactory);
+    }
+
+    /**
+     * Creates executor for the service borrowed from the pool.
+     * The service is returned to the pool on QUIT instead of being stopped.
+     *
+     * @param driverService Started service obtained from {@link WiniumDriverServicePool#acquire()}.
+     * @param driverServicePool The pool the service belongs to.
+     */
+    public WiniumDriverCommandExecutor(WiniumDriverService driverService, WiniumDriverServicePool driverServicePool) {
+        this(driverService, driverServicePool, null);
+    }
+
+    /**
+     * Creates executor for the service borrowed from the pool which sends commands using clients
+     * from the given factory.
+     *
+     * @param driverService Started service obtained from {@link WiniumDriverServicePool#acquire()}.
+     * @param driverServicePool The pool the service belongs to.
+     * @param clientFactory Factory of HTTP clients, e.g. {@link WiniumHttpClientFactory}.
+     */
+    public WiniumDriverCommandExecutor(WiniumDriverService driverService, WiniumDriverServicePool driverServicePool,
+                                       HttpClient.Factory clientFactory) {
+        this(WINIUM_COMMAND_NAME_TO_URL, driverService.getUrl(), clientFactoryOrDefault(clientFactory),
+                driverService, driverServicePool);
     }
 
     public WiniumDriverCommandExecutor(URL remoteUrl) {
-        super(WINIUM_COMMAND_NAME_TO_URL, remoteUrl);
-        service = null;
+        this(remoteUrl, null);
+    }
+
+    /**
+     * Creates executor for the remote server which sends commands using clients from the given factory.
+     *
+     * @param remoteUrl URL of the remote server.
+     * @param clientFactory Factory of HTTP clients, e.g. {@link WiniumHttpClientFactory}.
+     */
+    public WiniumDriverCommandExecutor(URL remoteUrl, HttpClient.Factory clientFactory) {
+        this(WINIUM_COMMAND_NAME_TO_URL, remoteUrl, clientFactoryOrDefault(clientFactory), null, null);
+    }
+
+    private WiniumDriverCommandExecutor(Map<String, CommandInfo> commands, URL remoteUrl,
+                                        HttpClient.Factory clientFactory, WiniumDriverService driverService,
+                                        WiniumDriverServicePool driverServicePool) {
+        super(commands, remoteUrl, clientFactory);
+        this.clientFactory = clientFactory;
+        service = driverService;
+        servicePool = driverServicePool;
+    }
+
+    /**
+     * Sets the listener notified about every command sent by this executor.
+     *
+     * @param metricsListener The listener or null to disable notifications.
+     */
+    public void setMetricsListener(WiniumMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Sets the policy hedging, retrying and timing out commands which only read state.
+     *
+     * @param hedgingPolicy The policy, usually shared by all executors, or null to send every command once.
+     */
+    public void setHedgingPolicy(WiniumHedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    /**
+     * Sets the manifest used to skip deployment of StoreApps files and dependencies already on the device.
+     *
+     * @param deploymentCache The manifest, usually shared by all executors, or null to deploy everything.
+     */
+    public void setDeploymentCache(WiniumDeploymentCache deploymentCache) {
+        this.deploymentCache = deploymentCache;
     }
 
     @Override
     public Response execute(Command command) throws IOException {
-        if (service != null) {
-            if (DriverCommand.NEW_SESSION.equals(command.getName())) {
+        return execute(command, null);
+    }
+
+    /**
+     * Sends the command like {@link #execute(Command)}, with the same session checks, hedging and metrics,
+     * but hands the response body to the reader instead of decoding it into maps.
+     * HTTP 404 is answered with an unknown command error without reading the body.
+     *
+     * @param command The command.
+     * @param reader Reads the response body, or null to decode it as usual.
+     * @return The response read.
+     */
+    Response execute(Command command, ResponseReader reader) throws IOException {
+        WiniumMetricsListener listener = metricsListener;
+        if (listener == null) {
+            return executeCommand(command, reader);
+        }
+
+        String commandName = command.getName();
+        String error = null;
+        listener.commandStarted(commandName);
+        long start = System.nanoTime();
+        try {
+            Response response = executeCommand(command, reader);
+            if (response.getStatus() != ErrorCodes.SUCCESS) {
+                error = ErrorCodes.toState(response.getStatus());
+            }
+            return response;
+        } catch (IOException e) {
+            error = e.getClass().getSimpleName();
+            throw e;
+        } catch (RuntimeException e) {
+            error = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            listener.commandFinished(commandName, System.nanoTime() - start, error);
+        }
+    }
+
+    private Response executeCommand(Command command, ResponseReader reader) throws IOException {
+        if ((service != null) && DriverCommand.NEW_SESSION.equals(command.getName())) {
+            service.clearLog();
+            if (servicePool == null) {
                 service.start();
             }
         }
 
+        WiniumDeploymentCache cache = deploymentCache;
+        WiniumDeploymentCache.Plan deploymentPlan = null;
+        if ((cache != null) && DriverCommand.NEW_SESSION.equals(command.getName())) {
+            deploymentPlan = cache.plan(getAddressOfRemoteServer(), command);
+            command = deploymentPlan.getCommand();
+        }
+        if (DriverCommand.NEW_SESSION.equals(command.getName())) {
+            command = withConvertedCapabilities(command);
+        }
+
+        boolean lifecycleCommand = DriverCommand.NEW_SESSION.equals(command.getName())
+                || DriverCommand.QUIT.equals(command.getName());
+        if (!lifecycleCommand) {
+            checkSessionNotLost();
+        }
 
         try {
-            return super.execute(command);
+            if (DriverCommand.QUIT.equals(command.getName()) && (isSessionLost() || serviceReleased.get())) {
+                // The session has been lost with its driver process or never started and the service
+                // is back in the pool, there is nothing to quit
+                Response response = new Response(command.getSessionId());
+                response.setStatus(ErrorCodes.SUCCESS);
+                return response;
+            }
+
+            Response response = send(command, reader);
+            if ((deploymentPlan != null) && (response.getStatus() == ErrorCodes.SUCCESS)) {
+                deploymentPlan.commit();
+            }
+            if ((service != null) && DriverCommand.NEW_SESSION.equals(command.getName())
+                    && (response.getStatus() == ErrorCodes.SUCCESS)) {
+                sessionGeneration = service.getGeneration();
+            }
+            if ((service != null) && DriverCommand.NEW_SESSION.equals(command.getName())
+                    && (response.getStatus() != ErrorCodes.SUCCESS)) {
+                // The driver reports the failed launch, RemoteWebDriver throws only after we return
+                service.sessionFailed();
+                releaseService();
+            }
+            return response;
         } catch (Throwable t) {
+            boolean newSession = DriverCommand.NEW_SESSION.equals(command.getName());
             Throwable rootCause = Throwables.getRootCause(t);
-            if (rootCause instanceof ConnectException && "Connection refused".equals(rootCause.getMessage()) &&
-                    ((service == null) || (!service.isRunning()))) {
+            boolean died = (!newSession && isSessionLost())
+                    || (rootCause instanceof ConnectException && "Connection refused".equals(rootCause.getMessage())
+                    && ((service == null) || (!service.isRunning())));
+
+            if ((service != null) && died) {
+                service.processLost();
+            } else if ((service != null) && newSession) {
+                service.sessionFailed();
+            }
+            if (newSession) {
+                releaseService();
+            }
+
+            if (died) {
                 throw new WebDriverException("The driver server has unexpectedly died!", t);
             }
             Throwables.propagateIfPossible(t);
             throw new WebDriverException(t);
         } finally {
             if ((service != null) && (DriverCommand.QUIT.equals(command.getName()))) {
-                service.stop();
+                if (servicePool != null) {
+                    releaseService();
+                } else {
+                    service.stop();
+                }
             }
         }
     }
+
+    private Response send(final Command command, final ResponseReader reader) throws IOException {
+        WiniumHedgingPolicy policy = hedgingPolicy;
+        if ((policy == null) || !policy.isIdempotent(command.getName())) {
+            Response response = sendOnce(command, reader);
+            if (response.getStatus() == ErrorCodes.SUCCESS) {
+                rememberImplicitWait(command);
+            }
+            return response;
+        }
+
+        long extraMillis = WiniumHedgingPolicy.FIND_COMMANDS.contains(command.getName()) ? implicitWaitMillis : 0;
+        return policy.execute(command, extraMillis, new Callable<Response>() {
+            @Override
+            public Response call() throws IOException {
+                return sendOnce(command, reader);
+            }
+        });
+    }
+
+    private Response sendOnce(Command command, ResponseReader reader) throws IOException {
+        if (reader == null) {
+            return super.execute(command);
+        }
+
+        HttpClient client = readerClient;
+        if (client == null) {
+            readerCodec = createCommandCodec();
+            client = clientFactory.createClient(getAddressOfRemoteServer());
+            readerClient = client;
+        }
+        HttpResponse httpResponse = client.execute(readerCodec.encode(command), true);
+        byte[] content = httpResponse.getContent() != null ? httpResponse.getContent() : new byte[0];
+        if (httpResponse.getStatus() == HttpURLConnection.HTTP_NOT_FOUND) {
+            Response response = new Response(command.getSessionId());
+            response.setStatus(ErrorCodes.UNKNOWN_COMMAND);
+            response.setValue(new String(content, Charsets.UTF_8));
+            return response;
+        }
+        return reader.read(new ByteArrayInputStream(content));
+    }
+
+    /**
+     * Keeps the implicit wait of the session, which find commands may spend on top of their usual latency.
+     */
+    private void rememberImplicitWait(Command command) {
+        Object millis = null;
+        if (DriverCommand.IMPLICITLY_WAIT.equals(command.getName())) {
+            millis = command.getParameters().get("ms");
+        } else if (DriverCommand.SET_TIMEOUT.equals(command.getName())
+                && "implicit".equals(command.getParameters().get("type"))) {
+            millis = command.getParameters().get("ms");
+        }
+        if (millis instanceof Number) {
+            implicitWaitMillis = ((Number) millis).longValue();
+        }
+    }
+
+    /**
+     * Returns the borrowed service to the pool once, whichever of a failed NEW_SESSION and the QUIT
+     * RemoteWebDriver sends after it comes first.
+     */
+    private void releaseService() {
+        if ((servicePool != null) && serviceReleased.compareAndSet(false, true)) {
+            servicePool.release(service);
+        }
+    }
+
+    /**
+     * @throws WebDriverException If the driver process the session was started in has been destroyed since.
+     */
+    void checkSessionNotLost() {
+        if (isSessionLost()) {
+            throw new WebDriverException("The driver server has been restarted, the session is lost");
+        }
+    }
+
+    /**
+     * @return The listener notified about commands or null.
+     */
+    WiniumMetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * @return true if the driver process the session was started in has been destroyed since,
+     * e.g. by {@link WiniumServiceSupervisor}.
+     */
+    private boolean isSessionLost() {
+        int generation = sessionGeneration;
+        return (service != null) && (generation >= 0) && (service.getGeneration() != generation);
+    }
+
+    /**
+     * Replaces capabilities created by Winium options with their JSON form cached in the capabilities,
+     * so sessions started with the same options do not convert them again.
+     */
+    private static Command withConvertedCapabilities(Command command) {
+        Object desired = command.getParameters().get(DESIRED_CAPABILITIES);
+        if (!(desired instanceof WiniumCapabilities)) {
+            return command;
+        }
+
+        Map<String, Object> parameters = new HashMap<String, Object>(command.getParameters());
+        parameters.put(DESIRED_CAPABILITIES, ((WiniumCapabilities) desired).toJsonElement());
+        return new Command(command.getSessionId(), command.getName(), parameters);
+    }
+
+    /**
+     * Creates a codec which encodes both standard and Winium specific commands.
+     *
+     * @return The new {@link JsonHttpCommandCodec} object.
+     */
+    static JsonHttpCommandCodec createCommandCodec() {
+        JsonHttpCommandCodec codec = new JsonHttpCommandCodec();
+        for (Map.Entry<String, String> entry : WINIUM_COMMAND_NAME_TO_PATH.entrySet()) {
+            codec.defineCommand(entry.getKey(), HttpMethod.POST, entry.getValue());
+        }
+        return codec;
+    }
+
+    static boolean isWiniumCommand(String commandName) {
+        return WINIUM_COMMAND_NAME_TO_URL.containsKey(commandName)
+                && !WiniumBatch.EXECUTE_BATCH_COMMAND.equals(commandName);
+    }
+
+    WiniumDriverService getService() {
+        return service;
+    }
+
+    boolean isBatchSupported() {
+        return batchSupported;
+    }
+
+    void setBatchSupported(boolean batchSupported) {
+        this.batchSupported = batchSupported;
+    }
+
+    boolean isWaitForSupported() {
+        return waitForSupported;
+    }
+
+    void setWaitForSupported(boolean waitForSupported) {
+        this.waitForSupported = waitForSupported;
+    }
+
+    /**
+     * Reads a response body, e.g. straight into a model of its own instead of JSON maps.
+     */
+    interface ResponseReader {
+        /**
+         * @param body The response body.
+         * @return The response with its status and the value read.
+         */
+        Response read(InputStream body) throws IOException;
+    }
+
+    private static void addWiniumCommand(String commandName, String path) {
+        WINIUM_COMMAND_NAME_TO_URL.put(commandName, new CommandInfo(path, HttpMethod.POST));
+        WINIUM_COMMAND_NAME_TO_PATH.put(commandName, path);
+    }
+
+    private static HttpClient.Factory clientFactoryOrDefault(HttpClient.Factory clientFactory) {
+        return clientFactory != null ? clientFactory : new ApacheHttpClient.Factory();
+    }
 }
@@ -5,12 +5,24 @@ import com.google.common.collect.ImmutableMap;
 import org.openqa.selenium.Beta;
 import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.net.PortProber;
+import org.openqa.selenium.net.UrlChecker;
+import org.openqa.selenium.os.CommandLine;
 import org.openqa.selenium.remote.service.DriverService;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -85,6 +97,9 @@ public class WiniumDriverService extends DriverService {
      */
     public static final String WINIUM_DRIVER_LOG_PATH_PROPERTY = "webdriver.winium.logpath";
 
+    private static final Logger LOG = Logger.getLogger(WiniumDriverService.class.getName());
+    private static final int DEFAULT_LOG_RETENTION_BYTES = 64 * 1024;
+
     /**
      * Creates a default instance of the WiniumDriverService using a default path to the Winium Desktop Driver.
      * @return A {@link WiniumDriverService} using Winium Desktop and random port
@@ -109,9 +124,337 @@ public class WiniumDriverService extends DriverService {
         return new Builder().usingAnyFreePort().buildStoreAppsService();
     }
 
+    private final String executable;
+    private final ImmutableList<String> args;
+    private final ImmutableMap<String, String> environment;
+    private final ReentrantLock lock = new ReentrantLock();
+    private CommandLine process;
+    private volatile ServiceOutputStream output;
+    private final AtomicReference<ServiceOutputStream> lostOutput = new AtomicReference<ServiceOutputStream>();
+
+    private volatile WiniumServiceReadiness readiness = WiniumServiceReadiness.statusProbe();
+    private volatile int logRetentionBytes = DEFAULT_LOG_RETENTION_BYTES;
+    private volatile boolean logForwarding = true;
+    private volatile File failureLogDirectory;
+    private volatile WiniumMetricsListener metricsListener;
+    private volatile long startupNanos = -1;
+    private WiniumPortAllocator portAllocator;
+    private boolean portReserved;
+    private boolean keepRunning;
+    private volatile int generation;
+
     protected WiniumDriverService(File executable, int port, ImmutableList<String> args,
                                   ImmutableMap<String, String> environment) throws IOException {
         super(executable, port, args, environment);
+        this.executable = executable.getCanonicalPath();
+        this.args = args;
+        this.environment = environment;
+    }
+
+    /**
+     * Sets the strategy deciding when the started driver is ready to accept commands.
+     *
+     * @param readiness The strategy, by default {@link WiniumServiceReadiness#statusProbe()}.
+     */
+    public void setReadinessStrategy(WiniumServiceReadiness readiness) {
+        this.readiness = checkNotNull(readiness);
+    }
+
+    /**
+     * Sets how much of the latest driver output is kept in memory. Applies from the next start.
+     *
+     * @param logRetentionBytes Approximate size of the kept output.
+     */
+    public void setLogRetention(int logRetentionBytes) {
+        checkArgument(logRetentionBytes > 0, "Log retention must be positive: %s", logRetentionBytes);
+        this.logRetentionBytes = logRetentionBytes;
+    }
+
+    /**
+     * Sets whether the driver output is also written to {@code System.err}. Applies from the next start.
+     *
+     * @param logForwarding true to write the output to {@code System.err} (default), false to keep it only in memory.
+     */
+    public void setLogForwarding(boolean logForwarding) {
+        this.logForwarding = logForwarding;
+    }
+
+    /**
+     * Sets the directory the kept driver output is written to when a session fails to start
+     * or the driver dies unexpectedly.
+     *
+     * @param failureLogDirectory The directory or null to never write the output.
+     */
+    public void setFailureLogDirectory(File failureLogDirectory) {
+        this.failureLogDirectory = failureLogDirectory;
+    }
+
+    /**
+     * Makes the service return its port to the allocator on stop and take it again on start.
+     * Called by the builder which has reserved the port.
+     */
+    void setPortAllocator(WiniumPortAllocator portAllocator) {
+        lock.lock();
+        try {
+            this.portAllocator = portAllocator;
+            this.portReserved = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The latest driver output kept in memory, one entry per line.
+     */
+    public List<String> getLog() {
+        ServiceOutputStream currentOutput = output;
+        return currentOutput == null ? Collections.<String>emptyList() : currentOutput.getLines();
+    }
+
+    /**
+     * Drops the driver output kept in memory, e.g. when a new session starts.
+     */
+    public void clearLog() {
+        ServiceOutputStream currentOutput = output;
+        if (currentOutput != null) {
+            currentOutput.clear();
+        }
+    }
+
+    /**
+     * Writes the driver output kept in memory to the file, e.g. when a test fails.
+     *
+     * @param file The file to write.
+     */
+    public void dumpLog(File file) {
+        ServiceOutputStream currentOutput = output;
+        if (currentOutput == null) {
+            return;
+        }
+
+        try {
+            currentOutput.writeTo(file);
+        } catch (IOException e) {
+            throw new WebDriverException("Failed to write driver log to " + file, e);
+        }
+    }
+
+    /**
+     * Sets the listener notified about durations of driver process start and stop.
+     *
+     * @param metricsListener The listener or null to disable notifications.
+     */
+    public void setMetricsListener(WiniumMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Returns how long the last {@link #start()} took, from launching the driver process until it became ready.
+     *
+     * @param unit Unit of the result.
+     * @return The startup time or -1 if the service has not been started yet.
+     */
+    public long getStartupTime(TimeUnit unit) {
+        long nanos = startupNanos;
+        return nanos < 0 ? -1 : unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public boolean isRunning() {
+        lock.lock();
+        try {
+            return process != null && process.isRunning();
+        } catch (IllegalThreadStateException e) {
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts the driver process and blocks until the readiness strategy reports it available.
+     * The service is stopped again if it does not become ready.
+     *
+     * @throws IOException If the process can not be started.
+     */
+    @Override
+    public void start() throws IOException {
+        lock.lock();
+        try {
+            if (process != null) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            keepRunning = true;
+            reservePort();
+            output = new ServiceOutputStream(logForwarding ? System.err : null, logRetentionBytes);
+            CommandLine commandLine = new CommandLine(executable, args.toArray(new String[args.size()]));
+            commandLine.setEnvironmentVariables(environment);
+            commandLine.copyOutputTo(output);
+            commandLine.executeAsync();
+            process = commandLine;
+            generation++;
+
+            try {
+                waitUntilAvailable();
+            } catch (RuntimeException e) {
+                destroyProcess();
+                releasePort();
+                throw e;
+            }
+
+            startupNanos = System.nanoTime() - start;
+            WiniumMetricsListener listener = metricsListener;
+            if (listener != null) {
+                listener.serviceStarted(startupNanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected void waitUntilAvailable() {
+        readiness.awaitReady(this, output);
+    }
+
+    @Override
+    public void stop() {
+        lock.lock();
+        try {
+            if (process == null) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            new UrlChecker().waitUntilUnavailable(3, TimeUnit.SECONDS, new URL(getUrl() + "/shutdown"));
+            destroyProcess();
+
+            WiniumMetricsListener listener = metricsListener;
+            if (listener != null) {
+                listener.serviceStopped(System.nanoTime() - start);
+            }
+        } catch (MalformedURLException e) {
+            throw new WebDriverException(e);
+        } catch (UrlChecker.TimeoutException e) {
+            throw new WebDriverException("Timed out waiting for driver server to shutdown.", e);
+        } finally {
+            process = null;
+            keepRunning = false;
+            releasePort();
+            lock.unlock();
+        }
+    }
+
+    void sessionFailed() {
+        writeFailureLog(output);
+    }
+
+    /**
+     * Writes the output of a driver process which has exited or been killed, once per process,
+     * before a restart replaces it with the output of the new process.
+     */
+    void processLost() {
+        ServiceOutputStream currentOutput = output;
+        if ((currentOutput != null) && (lostOutput.getAndSet(currentOutput) != currentOutput)) {
+            writeFailureLog(currentOutput);
+        }
+    }
+
+    private void writeFailureLog(ServiceOutputStream failedOutput) {
+        File directory = failureLogDirectory;
+        if ((directory == null) || (failedOutput == null)) {
+            return;
+        }
+
+        File file = new File(directory,
+                String.format("winium-%d-%d.log", getUrl().getPort(), System.currentTimeMillis()));
+        try {
+            failedOutput.writeTo(file);
+            LOG.info("Driver log written to " + file);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to write driver log to " + file, e);
+        }
+    }
+
+    /**
+     * @return Number which changes whenever a driver process is launched or destroyed.
+     */
+    int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Starts the driver process again if it has exited although the service has not been stopped.
+     * The output of the exited process is written to the failure log directory first.
+     *
+     * @return true if the process has been restarted.
+     * @throws IOException If the process can not be started.
+     */
+    boolean restartIfExited() throws IOException {
+        lock.lock();
+        try {
+            if (!keepRunning || isRunning()) {
+                return false;
+            }
+            processLost();
+            if (process != null) {
+                destroyProcess();
+            }
+            start();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Destroys the driver process without asking it to shut down, e.g. when it hangs.
+     * Unlike {@link #stop()}, the service still has to be running, so {@link #restartIfExited()} starts it again.
+     * The output of the killed process is written to the failure log directory.
+     */
+    void kill() {
+        lock.lock();
+        try {
+            if (process != null) {
+                processLost();
+                destroyProcess();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    URL getStatusUrl() {
+        try {
+            return new URL(getUrl() + "/status");
+        } catch (MalformedURLException e) {
+            throw new WebDriverException(e);
+        }
+    }
+
+    private void reservePort() {
+        if ((portAllocator != null) && !portReserved) {
+            portAllocator.reclaim(getUrl().getPort());
+            portReserved = true;
+        }
+    }
+
+    private void releasePort() {
+        if ((portAllocator != null) && portReserved) {
+            portAllocator.release(getUrl().getPort());
+            portReserved = false;
+        }
+    }
+
+    private void destroyProcess() {
+        generation++;
+        try {
+            process.destroy();
+        } finally {
+            process = null;
+        }
     }
 
     public static class Builder extends DriverService.Builder<WiniumDriverService, WiniumDriverService.Builder> {
@@ -134,6 +477,12 @@ public class WiniumDriverService extends DriverService {
         private File exe = null;
         private boolean verbose = Boolean.getBoolean(WINIUM_DRIVER_VERBOSE_LOG);
         private boolean silent = Boolean.getBoolean(WINIUM_DRIVER_SILENT);
+        private WiniumMetricsListener metricsListener = null;
+        private WiniumServiceReadiness readiness = WiniumServiceReadiness.statusProbe();
+        private int logRetentionBytes = DEFAULT_LOG_RETENTION_BYTES;
+        private boolean logForwarding = true;
+        private File failureLogDirectory = null;
+        private WiniumPortAllocator portAllocator = null;
 
         /**
          * Sets which driver executable the builder will use.
@@ -171,6 +520,74 @@ public class WiniumDriverService extends DriverService {
             return this;
         }
 
+        /**
+         * Configures the listener notified about durations of driver process start and stop.
+         *
+         * @param metricsListener The listener, e.g. {@link WiniumMetrics}.
+         * @return A self reference.
+         */
+        public Builder withMetricsListener(WiniumMetricsListener metricsListener) {
+            this.metricsListener = metricsListener;
+            return this;
+        }
+
+        /**
+         * Configures how the service detects that the started driver is ready to accept commands.
+         *
+         * @param readiness The strategy, e.g. {@link WiniumServiceReadiness#outputLine(String, long, TimeUnit)}.
+         * @return A self reference.
+         */
+        public Builder withReadinessStrategy(WiniumServiceReadiness readiness) {
+            this.readiness = checkNotNull(readiness);
+            return this;
+        }
+
+        /**
+         * Configures how much of the latest driver output is kept in memory, 64 KB by default.
+         *
+         * @param logRetentionBytes Approximate size of the kept output.
+         * @return A self reference.
+         */
+        public Builder withLogRetention(int logRetentionBytes) {
+            checkArgument(logRetentionBytes > 0, "Log retention must be positive: %s", logRetentionBytes);
+            this.logRetentionBytes = logRetentionBytes;
+            return this;
+        }
+
+        /**
+         * Configures whether the driver output is also written to {@code System.err}.
+         *
+         * @param logForwarding true to write the output to {@code System.err} (default), false to keep it only in memory.
+         * @return A self reference.
+         */
+        public Builder withLogForwarding(boolean logForwarding) {
+            this.logForwarding = logForwarding;
+            return this;
+        }
+
+        /**
+         * Configures the directory the kept driver output is written to when a session fails to start
+         * or the driver dies unexpectedly.
+         *
+         * @param failureLogDirectory The directory.
+         * @return A self reference.
+         */
+        public Builder withFailureLogDirectory(File failureLogDirectory) {
+            this.failureLogDirectory = failureLogDirectory;
+            return this;
+        }
+
+        /**
+         * Configures the allocator the port is taken from when no port has been set or any free port is used.
+         *
+         * @param portAllocator The allocator, e.g. shared by all services of the host.
+         * @return A self reference.
+         */
+        public Builder withPortAllocator(WiniumPortAllocator portAllocator) {
+            this.portAllocator = portAllocator;
+            return this;
+        }
+
         /**
          * Creates a new {@link WiniumDriverService} to manage the Winium Desktop Driver server.
          * Before creating a new service, the builder will find a port for the server to listen to.
@@ -178,20 +595,11 @@ public class WiniumDriverService extends DriverService {
          * @return The new {@link WiniumDriverService} object.
          */
         public WiniumDriverService buildDesktopService() {
-            int port = getPort();
-            if (port == 0) {
-                port = PortProber.findFreePort();
-            }
-
             if (exe == null) {
                 exe = findDesktopDriverExecutable();
             }
 
-            try {
-                return new WiniumDriverService(exe, port, createArgs(), ImmutableMap.<String, String>of());
-            } catch (IOException e) {
-                throw new WebDriverException(e);
-            }
+            return buildService();
         }
 
         /**
@@ -201,20 +609,11 @@ public class WiniumDriverService extends DriverService {
          * @return The new {@link WiniumDriverService} object.
          */
         public WiniumDriverService buildSilverlightService() {
-            int port = getPort();
-            if (port == 0) {
-                port = PortProber.findFreePort();
-            }
-
             if (exe == null) {
                 exe = findSilverlightDriverExecutable();
             }
 
-            try {
-                return new WiniumDriverService(exe, port, createArgs(), ImmutableMap.<String, String>of());
-            } catch (IOException e) {
-                throw new WebDriverException(e);
-            }
+            return buildService();
         }
 
         /**
@@ -224,19 +623,40 @@ public class WiniumDriverService extends DriverService {
          * @return The new {@link WiniumDriverService} object.
          */
         public WiniumDriverService buildStoreAppsService() {
-            int port = getPort();
-            if (port == 0) {
-                port = PortProber.findFreePort();
-            }
-
             if (exe == null) {
                 exe = findStoreAppsDriverExecutable();
             }
 
+            return buildService();
+        }
+
+        private WiniumDriverService buildService() {
+            int port = getPort();
+            WiniumPortAllocator allocator = null;
+            if (port == 0) {
+                if (portAllocator != null) {
+                    allocator = portAllocator;
+                    port = allocator.reserve();
+                } else {
+                    port = PortProber.findFreePort();
+                }
+            }
+
             try {
-                return new WiniumDriverService(exe, port, createArgs(), ImmutableMap.<String, String>of());
-            } catch (IOException e) {
-                throw new WebDriverException(e);
+                ImmutableList<String> args = new ImmutableList.Builder<String>()
+                        .add(String.format("--port=%d", port))
+                        .addAll(createArgs())
+                        .build();
+                WiniumDriverService service = createDriverService(exe, port, args, ImmutableMap.<String, String>of());
+                if (allocator != null) {
+                    service.setPortAllocator(allocator);
+                }
+                return service;
+            } catch (RuntimeException e) {
+                if (allocator != null) {
+                    allocator.release(port);
+                }
+                throw e;
             }
         }
 
@@ -272,7 +692,13 @@ public class WiniumDriverService extends DriverService {
         protected WiniumDriverService createDriverService(File exe, int port, ImmutableList<String> args,
                                                           ImmutableMap<String, String> environment) {
             try {
-                return new WiniumDriverService(exe, port, args, environment);
+                WiniumDriverService service = new WiniumDriverService(exe, port, args, environment);
+                service.setReadinessStrategy(readiness);
+                service.setLogRetention(logRetentionBytes);
+                service.setLogForwarding(logForwarding);
+                service.setFailureLogDirectory(failureLogDirectory);
+                service.setMetricsListener(metricsListener);
+                return service;
             } catch (IOException e) {
                 throw new WebDriverException(e);
             }
@@ -0,0 +1,448 @@
+package org.openqa.selenium.winium;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.openqa.selenium.WebDriverException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keeps a number of already started {@link WiniumDriverService} instances and hands them out to drivers.
+ * A driver created with a pool returns its service on {@code quit()} instead of stopping the driver process,
+ * so the next session does not pay for process start and port probing.
+ * <pre>{@code
+ * WiniumDriverServicePool pool = new WiniumDriverServicePool.Builder()
+ *     .withMinSize(2)
+ *     .withMaxSize(8)
+ *     .withIdleTimeout(5, TimeUnit.MINUTES)
+ *     .buildDesktopPool();
+ *
+ * WiniumDriver driver = new WiniumDriver(pool, options);
+ * // ...
+ * driver.quit();   // service goes back to the pool
+ *
+ * pool.close();    // stops all services
+ * }</pre>
+ */
+public class WiniumDriverServicePool implements Closeable {
+    private static final int HEALTH_CHECK_TIMEOUT_MS = 1000;
+
+    private final Supplier<WiniumDriverService> serviceFactory;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long acquireTimeoutMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final ArrayDeque<IdleService> idle = new ArrayDeque<IdleService>();
+    private final ScheduledExecutorService maintenance;
+
+    private int total;
+    private boolean closed;
+
+    protected WiniumDriverServicePool(Supplier<WiniumDriverService> serviceFactory, int minSize, int maxSize,
+                                      long idleTimeoutMillis, long acquireTimeoutMillis,
+                                      long maintenanceIntervalMillis) {
+        this.serviceFactory = serviceFactory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("winium-service-pool-%d").build());
+        maintenance.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evictIdle();
+                fill();
+            }
+        }, maintenanceIntervalMillis, maintenanceIntervalMillis, TimeUnit.MILLISECONDS);
+
+        fill();
+    }
+
+    /**
+     * Takes an idle running service from the pool or starts a new one if the pool is not exhausted.
+     * Blocks up to the acquire timeout if all services are in use.
+     *
+     * @return A started {@link WiniumDriverService}.
+     */
+    public WiniumDriverService acquire() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+
+        while (true) {
+            IdleService candidate = null;
+
+            lock.lock();
+            try {
+                while (idle.isEmpty() && total >= maxSize && !closed) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new WebDriverException(
+                                String.format("Timed out waiting for a free service, all %d are in use.", maxSize));
+                    }
+                    released.awaitNanos(remaining);
+                }
+
+                if (closed) {
+                    throw new WebDriverException("The service pool has been closed.");
+                }
+
+                if (!idle.isEmpty()) {
+                    candidate = idle.pollFirst();
+                } else {
+                    total++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WebDriverException(e);
+            } finally {
+                lock.unlock();
+            }
+
+            if (candidate == null) {
+                return startNewService();
+            }
+
+            if (isHealthy(candidate.service)) {
+                return candidate.service;
+            }
+            discard(candidate.service);
+        }
+    }
+
+    /**
+     * Returns a service to the pool. Services that are no longer healthy are stopped and replaced lazily.
+     *
+     * @param service The service previously obtained from {@link #acquire()}.
+     */
+    public void release(WiniumDriverService service) {
+        checkNotNull(service);
+
+        if (!isHealthy(service)) {
+            discard(service);
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (!closed) {
+                idle.addFirst(new IdleService(service, System.currentTimeMillis()));
+                released.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        discard(service);
+    }
+
+    /**
+     * @return Number of started services which are not in use at the moment.
+     */
+    public int getIdleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of services owned by the pool, both idle and in use.
+     */
+    public int getTotalCount() {
+        lock.lock();
+        try {
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops all idle services. Services which are in use are stopped when they are released.
+     */
+    @Override
+    public void close() {
+        List<IdleService> toStop;
+
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toStop = new ArrayList<IdleService>(idle);
+            idle.clear();
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        maintenance.shutdownNow();
+        for (IdleService idleService : toStop) {
+            discard(idleService.service);
+        }
+    }
+
+    private WiniumDriverService startNewService() {
+        WiniumDriverService service = null;
+        try {
+            service = serviceFactory.get();
+            service.start();
+            return service;
+        } catch (Throwable t) {
+            if (service != null) {
+                discard(service);
+            } else {
+                forget();
+            }
+            Throwables.propagateIfPossible(t);
+            throw new WebDriverException(t);
+        }
+    }
+
+    private void fill() {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || total >= minSize) {
+                    return;
+                }
+                total++;
+            } finally {
+                lock.unlock();
+            }
+
+            WiniumDriverService service;
+            try {
+                service = startNewService();
+            } catch (RuntimeException e) {
+                return;
+            }
+            release(service);
+        }
+    }
+
+    private void evictIdle() {
+        List<WiniumDriverService> toStop = new ArrayList<WiniumDriverService>();
+        long now = System.currentTimeMillis();
+
+        lock.lock();
+        try {
+            int keep = total;
+            Iterator<IdleService> iterator = idle.descendingIterator();
+            while (iterator.hasNext()) {
+                IdleService idleService = iterator.next();
+                boolean expired = (now - idleService.since) > idleTimeoutMillis && keep > minSize;
+                if (expired || !idleService.service.isRunning()) {
+                    iterator.remove();
+                    toStop.add(idleService.service);
+                    keep--;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (WiniumDriverService service : toStop) {
+            discard(service);
+        }
+    }
+
+    private void discard(WiniumDriverService service) {
+        try {
+            service.stop();
+        } catch (WebDriverException ignored) {
+            // The process is being thrown away, nothing else we can do about it
+        } finally {
+            forget();
+        }
+    }
+
+    private void forget() {
+        lock.lock();
+        try {
+            total--;
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean isHealthy(WiniumDriverService service) {
+        if (!service.isRunning()) {
+            return false;
+        }
+
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(service.getUrl().toString() + "/status").openConnection();
+            connection.setConnectTimeout(HEALTH_CHECK_TIMEOUT_MS);
+            connection.setReadTimeout(HEALTH_CHECK_TIMEOUT_MS);
+            return connection.getResponseCode() == HttpURLConnection.HTTP_OK;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private static class IdleService {
+        private final WiniumDriverService service;
+        private final long since;
+
+        IdleService(WiniumDriverService service, long since) {
+            this.service = service;
+            this.since = since;
+        }
+    }
+
+    public static class Builder {
+        private int minSize = 0;
+        private int maxSize = Runtime.getRuntime().availableProcessors();
+        private long idleTimeoutMillis = TimeUnit.MINUTES.toMillis(5);
+        private long acquireTimeoutMillis = TimeUnit.MINUTES.toMillis(2);
+        private long maintenanceIntervalMillis = TimeUnit.SECONDS.toMillis(30);
+
+        /**
+         * Sets the number of services that are started up front and kept running while idle.
+         *
+         * @param minSize Minimal number of running services.
+         * @return A self reference.
+         */
+        public Builder withMinSize(int minSize) {
+            checkArgument(minSize >= 0, "Min size must be non-negative: %s", minSize);
+            this.minSize = minSize;
+            return this;
+        }
+
+        /**
+         * Sets the maximal number of services the pool may run at the same time.
+         *
+         * @param maxSize Maximal number of running services.
+         * @return A self reference.
+         */
+        public Builder withMaxSize(int maxSize) {
+            checkArgument(maxSize > 0, "Max size must be positive: %s", maxSize);
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Sets how long a service above the min size may stay idle before it is stopped.
+         *
+         * @param timeout Idle timeout.
+         * @param unit Unit of the timeout.
+         * @return A self reference.
+         */
+        public Builder withIdleTimeout(long timeout, TimeUnit unit) {
+            this.idleTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * Sets how long {@link WiniumDriverServicePool#acquire()} waits for a service when all of them are in use.
+         *
+         * @param timeout Acquire timeout.
+         * @param unit Unit of the timeout.
+         * @return A self reference.
+         */
+        public Builder withAcquireTimeout(long timeout, TimeUnit unit) {
+            this.acquireTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * Sets how often idle services are health checked and evicted.
+         *
+         * @param interval Maintenance interval.
+         * @param unit Unit of the interval.
+         * @return A self reference.
+         */
+        public Builder withMaintenanceInterval(long interval, TimeUnit unit) {
+            checkArgument(interval > 0, "Maintenance interval must be positive: %s", interval);
+            this.maintenanceIntervalMillis = unit.toMillis(interval);
+            return this;
+        }
+
+        /**
+         * Creates a pool of services managing the Winium Desktop Driver server.
+         *
+         * @return The new {@link WiniumDriverServicePool} object.
+         */
+        public WiniumDriverServicePool buildDesktopPool() {
+            return build(new Supplier<WiniumDriverService>() {
+                @Override
+                public WiniumDriverService get() {
+                    return WiniumDriverService.createDesktopService();
+                }
+            });
+        }
+
+        /**
+         * Creates a pool of services managing the Winium WindowsPhone Driver server.
+         *
+         * @return The new {@link WiniumDriverServicePool} object.
+         */
+        public WiniumDriverServicePool buildSilverlightPool() {
+            return build(new Supplier<WiniumDriverService>() {
+                @Override
+                public WiniumDriverService get() {
+                    return WiniumDriverService.createSilverlightService();
+                }
+            });
+        }
+
+        /**
+         * Creates a pool of services managing the Winium StoreApps Driver server.
+         *
+         * @return The new {@link WiniumDriverServicePool} object.
+         */
+        public WiniumDriverServicePool buildStoreAppsPool() {
+            return build(new Supplier<WiniumDriverService>() {
+                @Override
+                public WiniumDriverService get() {
+                    return WiniumDriverService.createStoreAppsService();
+                }
+            });
+        }
+
+        /**
+         * Creates a pool of services produced by the given factory.
+         * Each service returned by the factory must listen on its own port.
+         *
+         * @param serviceFactory Factory of not yet started services.
+         * @return The new {@link WiniumDriverServicePool} object.
+         */
+        public WiniumDriverServicePool build(Supplier<WiniumDriverService> serviceFactory) {
+            checkNotNull(serviceFactory);
+            checkArgument(minSize <= maxSize, "Min size %s is greater than max size %s", minSize, maxSize);
+            return new WiniumDriverServicePool(serviceFactory, minSize, maxSize, idleTimeoutMillis,
+                    acquireTimeoutMillis, maintenanceIntervalMillis);
+        }
+    }
+}
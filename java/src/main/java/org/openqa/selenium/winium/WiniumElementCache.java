@@ -0,0 +1,218 @@
+package org.openqa.selenium.winium;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.DriverCommand;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Client-side cache of elements found by locator, so repeated lookups of the same element
+ * do not make the driver walk the UI Automation tree again.
+ * Entries are evicted when the cache is full, when they expire, and when a command using the element fails
+ * with a stale element error. The whole cache is cleared on window switches and, unless disabled,
+ * after actions which may change the UI, e.g. clicks and typing.
+ * A cache must be used by a single driver, because element ids are only valid in their session.
+ * <pre>{@code
+ * WiniumElementCache cache = new WiniumElementCache.Builder()
+ *     .withMaximumSize(512)
+ *     .withTimeToLive(1, TimeUnit.MINUTES)
+ *     .build();
+ * driver.setElementCache(cache);
+ * // ...
+ * System.out.println(cache.getHitCount() + " hits, " + cache.getMissCount() + " misses");
+ * }</pre>
+ */
+public class WiniumElementCache {
+    private static final Set<String> CACHEABLE_COMMANDS = ImmutableSet.of(
+            DriverCommand.FIND_ELEMENT, DriverCommand.FIND_CHILD_ELEMENT);
+
+    private static final Set<String> WINDOW_COMMANDS = ImmutableSet.of(
+            DriverCommand.SWITCH_TO_WINDOW, DriverCommand.CLOSE, DriverCommand.SWITCH_TO_FRAME,
+            DriverCommand.SWITCH_TO_PARENT_FRAME, DriverCommand.QUIT);
+
+    private static final Set<String> ACTION_COMMANDS = ImmutableSet.of(
+            DriverCommand.CLICK_ELEMENT, DriverCommand.CLEAR_ELEMENT, DriverCommand.SUBMIT_ELEMENT,
+            DriverCommand.SEND_KEYS_TO_ELEMENT, DriverCommand.SEND_KEYS_TO_ACTIVE_ELEMENT,
+            DriverCommand.CLICK, DriverCommand.DOUBLE_CLICK, DriverCommand.MOUSE_DOWN, DriverCommand.MOUSE_UP,
+            DriverCommand.EXECUTE_SCRIPT, DriverCommand.EXECUTE_ASYNC_SCRIPT,
+            "scrollToDataGridCell", "selectDataGridCell", "scrollToListBoxItem", "selectMenuItem",
+            "expandComboBox", "collapseComboBox", "scrollToComboBoxItem");
+
+    private final Cache<ElementKey, WebElement> elements;
+    private final boolean invalidateOnActions;
+
+    protected WiniumElementCache(long maximumSize, long timeToLiveMillis, boolean invalidateOnActions) {
+        this.elements = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLiveMillis, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        this.invalidateOnActions = invalidateOnActions;
+    }
+
+    /**
+     * @return Number of lookups answered from the cache.
+     */
+    public long getHitCount() {
+        return elements.stats().hitCount();
+    }
+
+    /**
+     * @return Number of lookups sent to the driver.
+     */
+    public long getMissCount() {
+        return elements.stats().missCount();
+    }
+
+    /**
+     * @return Number of entries evicted because of the size bound or expiration.
+     */
+    public long getEvictionCount() {
+        return elements.stats().evictionCount();
+    }
+
+    /**
+     * @return Share of lookups answered from the cache, 1.0 if there were no lookups.
+     */
+    public double getHitRate() {
+        return elements.stats().hitRate();
+    }
+
+    /**
+     * @return Number of cached elements.
+     */
+    public long size() {
+        return elements.size();
+    }
+
+    /**
+     * Drops all cached elements. Call it after the UI changes in a way the cache can not notice.
+     */
+    public void invalidateAll() {
+        elements.invalidateAll();
+    }
+
+    static ElementKey keyOf(String commandName, Map<String, ?> parameters) {
+        if (!CACHEABLE_COMMANDS.contains(commandName)) {
+            return null;
+        }
+        return new ElementKey(parameters.get("id"), parameters.get("using"), parameters.get("value"));
+    }
+
+    WebElement get(ElementKey key) {
+        return elements.getIfPresent(key);
+    }
+
+    void put(ElementKey key, Object element) {
+        if (element instanceof WebElement) {
+            elements.put(key, (WebElement) element);
+        }
+    }
+
+    void commandExecuted(String commandName) {
+        if (WINDOW_COMMANDS.contains(commandName) || (invalidateOnActions && ACTION_COMMANDS.contains(commandName))) {
+            elements.invalidateAll();
+        }
+    }
+
+    void elementStale(Object elementId) {
+        if (elementId == null) {
+            return;
+        }
+
+        Iterator<Map.Entry<ElementKey, WebElement>> entries = elements.asMap().entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<ElementKey, WebElement> entry = entries.next();
+            if (elementId.equals(entry.getKey().parentId) || elementId.equals(WiniumBatch.idOf(entry.getValue()))) {
+                entries.remove();
+            }
+        }
+    }
+
+    static class ElementKey {
+        private final Object parentId;
+        private final Object using;
+        private final Object value;
+
+        ElementKey(Object parentId, Object using, Object value) {
+            this.parentId = parentId;
+            this.using = using;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof ElementKey)) {
+                return false;
+            }
+            ElementKey key = (ElementKey) other;
+            return Objects.equal(parentId, key.parentId) && Objects.equal(using, key.using)
+                    && Objects.equal(value, key.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(parentId, using, value);
+        }
+    }
+
+    public static class Builder {
+        private long maximumSize = 256;
+        private long timeToLiveMillis = TimeUnit.SECONDS.toMillis(30);
+        private boolean invalidateOnActions = true;
+
+        /**
+         * Sets the maximal number of cached elements. The least recently used ones are evicted first.
+         *
+         * @param maximumSize Maximal number of elements, 256 by default.
+         * @return A self reference.
+         */
+        public Builder withMaximumSize(long maximumSize) {
+            checkArgument(maximumSize > 0, "Maximum size must be positive: %s", maximumSize);
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Sets how long an element stays cached after it has been found.
+         *
+         * @param timeToLive Time to live, 30 seconds by default.
+         * @param unit Unit of the time to live.
+         * @return A self reference.
+         */
+        public Builder withTimeToLive(long timeToLive, TimeUnit unit) {
+            checkArgument(timeToLive > 0, "Time to live must be positive: %s", timeToLive);
+            this.timeToLiveMillis = unit.toMillis(timeToLive);
+            return this;
+        }
+
+        /**
+         * Configures whether the cache is cleared after actions which may change the UI, e.g. clicks and typing.
+         *
+         * @param invalidateOnActions true to clear the cache after actions (default), false to keep it.
+         * @return A self reference.
+         */
+        public Builder withInvalidateOnActions(boolean invalidateOnActions) {
+            this.invalidateOnActions = invalidateOnActions;
+            return this;
+        }
+
+        /**
+         * Creates a new {@link WiniumElementCache}.
+         *
+         * @return The new {@link WiniumElementCache} object.
+         */
+        public WiniumElementCache build() {
+            return new WiniumElementCache(maximumSize, timeToLiveMillis, invalidateOnActions);
+        }
+    }
+}
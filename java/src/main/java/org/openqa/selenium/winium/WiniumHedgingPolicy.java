@@ -0,0 +1,498 @@
+package org.openqa.selenium.winium;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.Response;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Timeouts and hedged requests for commands which only read state, based on the latency observed per command.
+ * <p>
+ * When a read command has not been answered within a high percentile of its recent latency,
+ * the same request is sent again and the first answer wins, so a single slow UI Automation query
+ * does not stall the test. A read command which fails on the transport, e.g. with a reset connection,
+ * is retried. A read command which is not answered within a multiple of its recent p99 latency fails
+ * instead of waiting for the read timeout of the HTTP client. Commands which change state, e.g. clicks,
+ * are always sent once and wait as long as the HTTP client does.
+ * <pre>{@code
+ * WiniumHedgingPolicy hedging = new WiniumHedgingPolicy.Builder()
+ *     .withHedgePercentile(95)
+ *     .withTimeoutMultiplier(10)
+ *     .build();
+ *
+ * WiniumDriverCommandExecutor executor = new WiniumDriverCommandExecutor(service);
+ * executor.setHedgingPolicy(hedging);
+ * WiniumDriver driver = new WiniumDriver(executor, options);
+ * // ...
+ * hedging.close();
+ * }</pre>
+ * Until a command has been answered {@code minSamples} times it is neither hedged nor timed out early.
+ * The implicit wait of the session is added to the hedge delay and the timeout of find commands.
+ * Latency is measured from the first request of a command, also when a hedged request wins or the command times out.
+ * <p>
+ * A losing request is cancelled, but a blocking socket read of the HTTP client is not interrupted by that,
+ * so the request keeps its pooled connection until the driver answers it. Hedged requests are therefore
+ * skipped while {@code maxPendingHedges} of them are still running, keep it below the connections per URL
+ * of the client factory.
+ * A policy can be shared by many executors, but keeps statistics per command name only.
+ */
+public class WiniumHedgingPolicy implements Closeable {
+    private static final String THREAD_NAME_PREFIX = "winium-hedging-";
+
+    private static final Set<String> IDEMPOTENT_COMMANDS = ImmutableSet.of(
+            DriverCommand.FIND_ELEMENT, DriverCommand.FIND_ELEMENTS,
+            DriverCommand.FIND_CHILD_ELEMENT, DriverCommand.FIND_CHILD_ELEMENTS,
+            DriverCommand.GET_ELEMENT_TEXT, DriverCommand.GET_ELEMENT_ATTRIBUTE, DriverCommand.GET_ELEMENT_TAG_NAME,
+            DriverCommand.GET_ELEMENT_LOCATION, DriverCommand.GET_ELEMENT_SIZE,
+            DriverCommand.IS_ELEMENT_DISPLAYED, DriverCommand.IS_ELEMENT_ENABLED, DriverCommand.IS_ELEMENT_SELECTED,
+            DriverCommand.GET_TITLE, DriverCommand.GET_PAGE_SOURCE, DriverCommand.SCREENSHOT,
+            DriverCommand.GET_CURRENT_WINDOW_HANDLE, DriverCommand.GET_WINDOW_HANDLES, DriverCommand.STATUS,
+            "findDataGridCell", "getDataGridColumnCount", "getDataGridRowCount", "findMenuItem",
+            "isComboBoxExpanded", "findComboBoxSelectedItem", WiniumUiTree.SNAPSHOT_TREE_COMMAND);
+
+    static final Set<String> FIND_COMMANDS = ImmutableSet.of(
+            DriverCommand.FIND_ELEMENT, DriverCommand.FIND_ELEMENTS,
+            DriverCommand.FIND_CHILD_ELEMENT, DriverCommand.FIND_CHILD_ELEMENTS);
+
+    private final Set<String> idempotentCommands;
+    private final double hedgePercentile;
+    private final long minHedgeDelayNanos;
+    private final int maxHedges;
+    private final int maxPendingHedges;
+    private final int maxRetries;
+    private final double timeoutMultiplier;
+    private final long minTimeoutNanos;
+    private final long maxTimeoutNanos;
+    private final int minSamples;
+    private final int windowSize;
+    private final ExecutorService executor;
+
+    private final ConcurrentMap<String, CommandLatency> latencies = new ConcurrentHashMap<String, CommandLatency>();
+    private final AtomicInteger pendingHedges = new AtomicInteger();
+    private final AtomicLong hedgeCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    protected WiniumHedgingPolicy(Set<String> idempotentCommands, double hedgePercentile, long minHedgeDelayNanos,
+                                  int maxHedges, int maxPendingHedges, int maxRetries, double timeoutMultiplier,
+                                  long minTimeoutNanos, long maxTimeoutNanos, int minSamples, int windowSize) {
+        this.idempotentCommands = idempotentCommands;
+        this.hedgePercentile = hedgePercentile;
+        this.minHedgeDelayNanos = minHedgeDelayNanos;
+        this.maxHedges = maxHedges;
+        this.maxPendingHedges = maxPendingHedges;
+        this.maxRetries = maxRetries;
+        this.timeoutMultiplier = timeoutMultiplier;
+        this.minTimeoutNanos = minTimeoutNanos;
+        this.maxTimeoutNanos = maxTimeoutNanos;
+        this.minSamples = minSamples;
+        this.windowSize = windowSize;
+
+        ThreadFactory threadFactory = WiniumSessionRunner.virtualThreadFactory(THREAD_NAME_PREFIX);
+        if (threadFactory == null) {
+            threadFactory = new ThreadFactoryBuilder().setDaemon(true).setNameFormat(THREAD_NAME_PREFIX + "%d").build();
+        }
+        this.executor = Executors.newCachedThreadPool(threadFactory);
+    }
+
+    /**
+     * @param commandName Name of the command.
+     * @return true if the command is hedged, retried and timed out by this policy.
+     */
+    public boolean isIdempotent(String commandName) {
+        return idempotentCommands.contains(commandName);
+    }
+
+    /**
+     * @return Number of hedged requests sent.
+     */
+    public long getHedgeCount() {
+        return hedgeCount.get();
+    }
+
+    /**
+     * @return Number of hedged requests which are still running, including losing ones waiting for the driver.
+     */
+    public int getPendingHedgeCount() {
+        return pendingHedges.get();
+    }
+
+    /**
+     * @return Number of requests sent again after a transport error.
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * @return Number of commands failed because they were not answered within the adaptive timeout.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * Stops the threads sending hedged requests. Executors using the policy send their commands once afterwards.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Sends the idempotent command with hedged requests, retries and the adaptive timeout.
+     *
+     * @param command The command.
+     * @param extraMillis Time the driver may legitimately spend on top of the usual latency, e.g. an implicit wait.
+     * @param attempt Sends the command once.
+     * @return The first response received.
+     */
+    Response execute(Command command, long extraMillis, final Callable<Response> attempt) throws IOException {
+        if (executor.isShutdown()) {
+            return call(attempt);
+        }
+
+        CommandLatency latency = latencyOf(command.getName());
+        long extraNanos = TimeUnit.MILLISECONDS.toNanos(extraMillis);
+        long hedgeDelayNanos = latency.hedgeDelayNanos() + extraNanos;
+        long timeoutNanos = latency.timeoutNanos() + extraNanos;
+
+        ExecutorCompletionService<Response> completion = new ExecutorCompletionService<Response>(executor);
+        List<Future<Response>> attempts = new ArrayList<Future<Response>>();
+        long start = System.nanoTime();
+        long deadline = start + timeoutNanos;
+        long lastSent = start;
+        int pending = 1;
+        int hedges = 0;
+        int retries = 0;
+        attempts.add(completion.submit(attempt));
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                if (now - deadline >= 0) {
+                    latency.record(now - start);
+                    timeoutCount.incrementAndGet();
+                    throw new WebDriverException(new TimeoutException(String.format(
+                            "Command %s has not been answered in %d ms", command.getName(),
+                            TimeUnit.NANOSECONDS.toMillis(now - start))));
+                }
+
+                boolean canHedge = hedges < maxHedges;
+                long nextHedge = lastSent + hedgeDelayNanos;
+                long waitNanos = canHedge ? Math.min(deadline - now, nextHedge - now) : deadline - now;
+                Future<Response> done = completion.poll(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    if (canHedge && System.nanoTime() - nextHedge >= 0) {
+                        if (pendingHedges.get() < maxPendingHedges) {
+                            hedges++;
+                            hedgeCount.incrementAndGet();
+                            attempts.add(completion.submit(hedged(attempt)));
+                            pending++;
+                        }
+                        lastSent = System.nanoTime();
+                    }
+                    continue;
+                }
+
+                pending--;
+                try {
+                    Response response = done.get();
+                    latency.record(System.nanoTime() - start);
+                    return response;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (isTransportError(cause) && retries < maxRetries) {
+                        retries++;
+                        retryCount.incrementAndGet();
+                        attempts.add(completion.submit(attempt));
+                        pending++;
+                        lastSent = System.nanoTime();
+                    } else if (pending == 0) {
+                        throw propagate(cause);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException(e);
+        } finally {
+            for (Future<Response> future : attempts) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private CommandLatency latencyOf(String commandName) {
+        CommandLatency latency = latencies.get(commandName);
+        if (latency == null) {
+            CommandLatency newLatency = new CommandLatency();
+            latency = latencies.putIfAbsent(commandName, newLatency);
+            if (latency == null) {
+                latency = newLatency;
+            }
+        }
+        return latency;
+    }
+
+    private Callable<Response> hedged(final Callable<Response> attempt) {
+        return new Callable<Response>() {
+            @Override
+            public Response call() throws Exception {
+                pendingHedges.incrementAndGet();
+                try {
+                    return attempt.call();
+                } finally {
+                    pendingHedges.decrementAndGet();
+                }
+            }
+        };
+    }
+
+    private static Response call(Callable<Response> attempt) throws IOException {
+        try {
+            return attempt.call();
+        } catch (Exception e) {
+            throw propagate(e);
+        }
+    }
+
+    private static boolean isTransportError(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static IOException propagate(Throwable error) throws IOException {
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        throw new WebDriverException(error);
+    }
+
+    /**
+     * Latencies of the last {@code windowSize} to {@code 2 * windowSize} answers of a command,
+     * so the hedge delay and the timeout follow changes of the driver's load.
+     */
+    private class CommandLatency {
+        private final AtomicReference<LatencyHistogram> current =
+                new AtomicReference<LatencyHistogram>(new LatencyHistogram());
+        private volatile LatencyHistogram previous;
+
+        void record(long durationNanos) {
+            LatencyHistogram histogram = current.get();
+            histogram.record(durationNanos);
+            if (histogram.getCount() >= windowSize && current.compareAndSet(histogram, new LatencyHistogram())) {
+                previous = histogram;
+            }
+        }
+
+        long hedgeDelayNanos() {
+            LatencyHistogram histogram = histogram();
+            if (histogram == null) {
+                return maxTimeoutNanos;
+            }
+            long percentile = TimeUnit.MICROSECONDS.toNanos(histogram.getPercentileMicros(hedgePercentile));
+            return Math.min(Math.max(percentile, minHedgeDelayNanos), timeoutNanos());
+        }
+
+        long timeoutNanos() {
+            LatencyHistogram histogram = histogram();
+            if (histogram == null) {
+                return maxTimeoutNanos;
+            }
+            long p99 = TimeUnit.MICROSECONDS.toNanos(histogram.getPercentileMicros(99));
+            return Math.min(Math.max((long) (p99 * timeoutMultiplier), minTimeoutNanos), maxTimeoutNanos);
+        }
+
+        private LatencyHistogram histogram() {
+            LatencyHistogram histogram = previous;
+            if (histogram == null) {
+                histogram = current.get();
+            }
+            return histogram.getCount() >= minSamples ? histogram : null;
+        }
+    }
+
+    public static class Builder {
+        private final Set<String> idempotentCommands = new HashSet<String>(IDEMPOTENT_COMMANDS);
+        private double hedgePercentile = 95;
+        private long minHedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(50);
+        private int maxHedges = 1;
+        private int maxPendingHedges = 4;
+        private int maxRetries = 2;
+        private double timeoutMultiplier = 10;
+        private long minTimeoutNanos = TimeUnit.SECONDS.toNanos(30);
+        private long maxTimeoutNanos = TimeUnit.MINUTES.toNanos(10);
+        private int minSamples = 20;
+        private int windowSize = 1000;
+
+        /**
+         * Adds commands which only read state, e.g. custom extension commands of the driver.
+         * Commands which change state must not be added, they would be executed several times.
+         *
+         * @param commandNames Names of the commands.
+         * @return A self reference.
+         */
+        public Builder withIdempotentCommands(String... commandNames) {
+            for (String commandName : commandNames) {
+                checkArgument(!DriverCommand.NEW_SESSION.equals(commandName) && !DriverCommand.QUIT.equals(commandName),
+                        "Command changes state: %s", commandName);
+                idempotentCommands.add(checkNotNull(commandName));
+            }
+            return this;
+        }
+
+        /**
+         * Sets the latency percentile of a command after which a hedged request is sent.
+         *
+         * @param hedgePercentile Percentile in range (0, 100), 95 by default.
+         * @return A self reference.
+         */
+        public Builder withHedgePercentile(double hedgePercentile) {
+            checkArgument(hedgePercentile > 0 && hedgePercentile < 100, "Invalid percentile: %s", hedgePercentile);
+            this.hedgePercentile = hedgePercentile;
+            return this;
+        }
+
+        /**
+         * Sets the shortest delay before a hedged request, which bounds the extra load on a fast driver.
+         *
+         * @param delay The delay, 50 ms by default.
+         * @param unit Unit of the delay.
+         * @return A self reference.
+         */
+        public Builder withMinHedgeDelay(long delay, TimeUnit unit) {
+            checkArgument(delay >= 0, "Delay must not be negative: %s", delay);
+            this.minHedgeDelayNanos = unit.toNanos(delay);
+            return this;
+        }
+
+        /**
+         * Sets how many hedged requests may be sent for one command.
+         *
+         * @param maxHedges Number of requests, 1 by default, 0 to disable hedging.
+         * @return A self reference.
+         */
+        public Builder withMaxHedges(int maxHedges) {
+            checkArgument(maxHedges >= 0, "Max hedges must not be negative: %s", maxHedges);
+            this.maxHedges = maxHedges;
+            return this;
+        }
+
+        /**
+         * Sets how many hedged requests may be running at once for all commands using the policy.
+         * A losing hedged request keeps its pooled connection until the driver answers it.
+         *
+         * @param maxPendingHedges Number of requests, 4 by default.
+         * @return A self reference.
+         */
+        public Builder withMaxPendingHedges(int maxPendingHedges) {
+            checkArgument(maxPendingHedges >= 0, "Max pending hedges must not be negative: %s", maxPendingHedges);
+            this.maxPendingHedges = maxPendingHedges;
+            return this;
+        }
+
+        /**
+         * Sets how many times a command is sent again after a transport error.
+         *
+         * @param maxRetries Number of retries, 2 by default, 0 to disable retries.
+         * @return A self reference.
+         */
+        public Builder withMaxRetries(int maxRetries) {
+            checkArgument(maxRetries >= 0, "Max retries must not be negative: %s", maxRetries);
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * Sets the timeout of a command as a multiple of its p99 latency.
+         *
+         * @param timeoutMultiplier The multiplier, 10 by default.
+         * @return A self reference.
+         */
+        public Builder withTimeoutMultiplier(double timeoutMultiplier) {
+            checkArgument(timeoutMultiplier >= 1, "Timeout multiplier must be at least 1: %s", timeoutMultiplier);
+            this.timeoutMultiplier = timeoutMultiplier;
+            return this;
+        }
+
+        /**
+         * Sets the bounds of the adaptive timeout. The maximal timeout is used until a command
+         * has enough latency samples.
+         *
+         * @param minTimeout The shortest timeout, 30 seconds by default.
+         * @param maxTimeout The longest timeout, 10 minutes by default.
+         * @param unit Unit of the timeouts.
+         * @return A self reference.
+         */
+        public Builder withTimeoutBounds(long minTimeout, long maxTimeout, TimeUnit unit) {
+            checkArgument(minTimeout > 0 && minTimeout <= maxTimeout, "Invalid timeout bounds: %s-%s",
+                    minTimeout, maxTimeout);
+            this.minTimeoutNanos = unit.toNanos(minTimeout);
+            this.maxTimeoutNanos = unit.toNanos(maxTimeout);
+            return this;
+        }
+
+        /**
+         * Sets how many answers of a command are needed before it is hedged or timed out early,
+         * and how many recent answers its latency percentiles are based on.
+         *
+         * @param minSamples Number of answers needed, 20 by default.
+         * @param windowSize Number of recent answers, 1000 by default.
+         * @return A self reference.
+         */
+        public Builder withSamples(int minSamples, int windowSize) {
+            checkArgument(minSamples > 0 && minSamples <= windowSize, "Invalid samples: %s of %s",
+                    minSamples, windowSize);
+            this.minSamples = minSamples;
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        /**
+         * Creates a new {@link WiniumHedgingPolicy} with its own threads for hedged requests.
+         *
+         * @return The new {@link WiniumHedgingPolicy} object.
+         */
+        public WiniumHedgingPolicy build() {
+            return new WiniumHedgingPolicy(ImmutableSet.copyOf(idempotentCommands), hedgePercentile,
+                    minHedgeDelayNanos, maxHedges, maxPendingHedges, maxRetries, timeoutMultiplier, minTimeoutNanos,
+                    maxTimeoutNanos, minSamples, windowSize);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.openqa.selenium.winium;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.internal.ApacheHttpClient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@link HttpClient.Factory} for {@link WiniumDriverCommandExecutor} which keeps connections to the driver alive
+ * between commands. Connections are pooled per driver URL, so sessions talking to the same service reuse sockets
+ * instead of opening a new one for every command.
+ * <pre>{@code
+ * WiniumHttpClientFactory clientFactory = new WiniumHttpClientFactory.Builder()
+ *     .withConnectTimeout(5, TimeUnit.SECONDS)
+ *     .withReadTimeout(2, TimeUnit.MINUTES)
+ *     .withMaxConnectionsPerUrl(4)
+ *     .build();
+ *
+ * WiniumDriver driver = new WiniumDriver(new WiniumDriverCommandExecutor(service, clientFactory), options);
+ * }</pre>
+ */
+public class WiniumHttpClientFactory implements HttpClient.Factory, Closeable {
+    private final CloseableHttpClient client;
+
+    protected WiniumHttpClientFactory(int connectTimeoutMillis, int readTimeoutMillis, int maxConnectionsPerUrl,
+                                      int maxConnections, final long keepAliveMillis) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(keepAliveMillis, TimeUnit.MILLISECONDS);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerUrl);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setValidateAfterInactivity(1000);
+        connectionManager.setDefaultSocketConfig(SocketConfig.custom()
+                .setTcpNoDelay(true)
+                .setSoKeepAlive(true)
+                .setSoReuseAddress(true)
+                .setSoTimeout(readTimeoutMillis)
+                .build());
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setConnectionRequestTimeout(connectTimeoutMillis)
+                .setSocketTimeout(readTimeoutMillis)
+                .build();
+
+        ConnectionKeepAliveStrategy keepAliveStrategy = new ConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return duration > 0 ? Math.min(duration, keepAliveMillis) : keepAliveMillis;
+            }
+        };
+
+        client = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .disableRedirectHandling()
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    @Override
+    public HttpClient createClient(URL url) {
+        return new ApacheHttpClient(client, url);
+    }
+
+    /**
+     * Closes all pooled connections. Clients created by this factory can not be used afterwards.
+     */
+    @Override
+    public void close() {
+        try {
+            client.close();
+        } catch (IOException e) {
+            throw new WebDriverException(e);
+        }
+    }
+
+    /**
+     * Converts the timeout to milliseconds in the int range of HTTP client settings.
+     */
+    static int toIntMillis(long timeout, TimeUnit unit) {
+        long millis = unit.toMillis(timeout);
+        checkArgument(millis >= 0 && millis <= Integer.MAX_VALUE, "Timeout out of range: %s ms", millis);
+        return (int) millis;
+    }
+
+    public static class Builder {
+        private int connectTimeoutMillis = (int) TimeUnit.MINUTES.toMillis(2);
+        private int readTimeoutMillis = (int) TimeUnit.HOURS.toMillis(3);
+        private int maxConnectionsPerUrl = 8;
+        private int maxConnections = 200;
+        private long keepAliveMillis = TimeUnit.SECONDS.toMillis(30);
+
+        /**
+         * Sets how long to wait for a connection to the driver to be established.
+         *
+         * @param timeout Connect timeout.
+         * @param unit Unit of the timeout.
+         * @return A self reference.
+         */
+        public Builder withConnectTimeout(long timeout, TimeUnit unit) {
+            this.connectTimeoutMillis = toIntMillis(timeout, unit);
+            return this;
+        }
+
+        /**
+         * Sets how long to wait for the driver to respond to a command.
+         *
+         * @param timeout Read timeout.
+         * @param unit Unit of the timeout.
+         * @return A self reference.
+         */
+        public Builder withReadTimeout(long timeout, TimeUnit unit) {
+            this.readTimeoutMillis = toIntMillis(timeout, unit);
+            return this;
+        }
+
+        /**
+         * Sets the maximal number of open connections to a single driver URL.
+         *
+         * @param maxConnectionsPerUrl Maximal number of connections per driver.
+         * @return A self reference.
+         */
+        public Builder withMaxConnectionsPerUrl(int maxConnectionsPerUrl) {
+            checkArgument(maxConnectionsPerUrl > 0, "Max connections per url must be positive: %s",
+                    maxConnectionsPerUrl);
+            this.maxConnectionsPerUrl = maxConnectionsPerUrl;
+            return this;
+        }
+
+        /**
+         * Sets the maximal number of open connections to all drivers.
+         *
+         * @param maxConnections Maximal number of connections.
+         * @return A self reference.
+         */
+        public Builder withMaxConnections(int maxConnections) {
+            checkArgument(maxConnections > 0, "Max connections must be positive: %s", maxConnections);
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * Sets how long an unused connection is kept open.
+         *
+         * @param keepAlive Keep-alive duration.
+         * @param unit Unit of the duration.
+         * @return A self reference.
+         */
+        public Builder withKeepAlive(long keepAlive, TimeUnit unit) {
+            checkArgument(keepAlive > 0, "Keep-alive must be positive: %s", keepAlive);
+            this.keepAliveMillis = unit.toMillis(keepAlive);
+            return this;
+        }
+
+        /**
+         * Creates a new {@link WiniumHttpClientFactory} with a fresh connection pool.
+         *
+         * @return The new {@link WiniumHttpClientFactory} object.
+         */
+        public WiniumHttpClientFactory build() {
+            return new WiniumHttpClientFactory(connectTimeoutMillis, readTimeoutMillis, maxConnectionsPerUrl,
+                    Math.max(maxConnections, maxConnectionsPerUrl), keepAliveMillis);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package org.openqa.selenium.winium;
+
+import org.openqa.selenium.WebDriverException;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link WiniumMetricsListener} which keeps latency histograms, counts and errors per command name
+ * and durations of driver process starts and stops. Statistics can be read as a snapshot
+ * or published to JMX with {@link #registerMBean(String)}.
+ * <pre>{@code
+ * WiniumMetrics metrics = new WiniumMetrics();
+ * metrics.registerMBean("nightly");
+ *
+ * WiniumDriverService service = new WiniumDriverService.Builder()
+ *     .usingAnyFreePort()
+ *     .withMetricsListener(metrics)
+ *     .buildDesktopService();
+ * WiniumDriverCommandExecutor executor = new WiniumDriverCommandExecutor(service);
+ * executor.setMetricsListener(metrics);
+ *
+ * WiniumDriver driver = new WiniumDriver(executor, options);
+ * // ...
+ * System.out.println(metrics.getCommandStatistics().get("findElement").getLatency().getP99Micros());
+ * }</pre>
+ */
+public class WiniumMetrics implements WiniumMetricsListener, WiniumMetricsMXBean {
+    private final ConcurrentMap<String, CommandMetrics> commands = new ConcurrentHashMap<String, CommandMetrics>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LatencyHistogram serviceStarts = new LatencyHistogram();
+    private final LatencyHistogram serviceStops = new LatencyHistogram();
+
+    @Override
+    public void commandStarted(String commandName) {
+        inFlight.incrementAndGet();
+        metricsOf(commandName).inFlight.incrementAndGet();
+    }
+
+    @Override
+    public void commandFinished(String commandName, long durationNanos, String error) {
+        inFlight.decrementAndGet();
+
+        CommandMetrics metrics = metricsOf(commandName);
+        metrics.inFlight.decrementAndGet();
+        metrics.latency.record(durationNanos);
+        if (error != null) {
+            metrics.errorCount.incrementAndGet();
+            AtomicLong errorCount = metrics.errors.get(error);
+            if (errorCount == null) {
+                AtomicLong newCount = new AtomicLong();
+                errorCount = metrics.errors.putIfAbsent(error, newCount);
+                if (errorCount == null) {
+                    errorCount = newCount;
+                }
+            }
+            errorCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void serviceStarted(long durationNanos) {
+        serviceStarts.record(durationNanos);
+    }
+
+    @Override
+    public void serviceStopped(long durationNanos) {
+        serviceStops.record(durationNanos);
+    }
+
+    @Override
+    public int getInFlightCommands() {
+        return inFlight.get();
+    }
+
+    @Override
+    public Map<String, CommandStatistics> getCommandStatistics() {
+        Map<String, CommandStatistics> snapshot = new TreeMap<String, CommandStatistics>();
+        for (Map.Entry<String, CommandMetrics> entry : commands.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().snapshot(entry.getKey()));
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    @Override
+    public DurationStatistics getServiceStartStatistics() {
+        return new DurationStatistics(serviceStarts);
+    }
+
+    @Override
+    public DurationStatistics getServiceStopStatistics() {
+        return new DurationStatistics(serviceStops);
+    }
+
+    @Override
+    public void reset() {
+        for (CommandMetrics metrics : commands.values()) {
+            metrics.latency.reset();
+            metrics.errorCount.set(0);
+            metrics.errors.clear();
+        }
+        serviceStarts.reset();
+        serviceStops.reset();
+    }
+
+    /**
+     * Publishes these metrics to the platform MBean server.
+     *
+     * @param name Value of the "name" key of the object name, to tell several instances apart.
+     * @return The object name the metrics are registered with.
+     */
+    public ObjectName registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName(
+                    "org.openqa.selenium.winium:type=WiniumMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new WebDriverException(e);
+        }
+    }
+
+    private CommandMetrics metricsOf(String commandName) {
+        CommandMetrics metrics = commands.get(commandName);
+        if (metrics == null) {
+            CommandMetrics newMetrics = new CommandMetrics();
+            metrics = commands.putIfAbsent(commandName, newMetrics);
+            if (metrics == null) {
+                metrics = newMetrics;
+            }
+        }
+        return metrics;
+    }
+
+    private static class CommandMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong errorCount = new AtomicLong();
+        private final ConcurrentMap<String, AtomicLong> errors = new ConcurrentHashMap<String, AtomicLong>();
+
+        CommandStatistics snapshot(String name) {
+            Map<String, Long> errorsSnapshot = new TreeMap<String, Long>();
+            for (Map.Entry<String, AtomicLong> entry : errors.entrySet()) {
+                errorsSnapshot.put(entry.getKey(), entry.getValue().get());
+            }
+            return new CommandStatistics(name, inFlight.get(), errorCount.get(),
+                    Collections.unmodifiableMap(errorsSnapshot), new DurationStatistics(latency));
+        }
+    }
+
+    /**
+     * Snapshot of durations. All values are in microseconds.
+     */
+    public static class DurationStatistics {
+        private final long count;
+        private final double meanMicros;
+        private final long p50Micros;
+        private final long p90Micros;
+        private final long p99Micros;
+        private final long p999Micros;
+        private final long maxMicros;
+
+        DurationStatistics(LatencyHistogram histogram) {
+            count = histogram.getCount();
+            meanMicros = histogram.getMeanMicros();
+            p50Micros = histogram.getPercentileMicros(50);
+            p90Micros = histogram.getPercentileMicros(90);
+            p99Micros = histogram.getPercentileMicros(99);
+            p999Micros = histogram.getPercentileMicros(99.9);
+            maxMicros = histogram.getMaxMicros();
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMicros() {
+            return meanMicros;
+        }
+
+        public long getP50Micros() {
+            return p50Micros;
+        }
+
+        public long getP90Micros() {
+            return p90Micros;
+        }
+
+        public long getP99Micros() {
+            return p99Micros;
+        }
+
+        public long getP999Micros() {
+            return p999Micros;
+        }
+
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+    }
+
+    /**
+     * Snapshot of statistics of a single command.
+     */
+    public static class CommandStatistics {
+        private final String name;
+        private final int inFlight;
+        private final long errorCount;
+        private final Map<String, Long> errors;
+        private final DurationStatistics latency;
+
+        CommandStatistics(String name, int inFlight, long errorCount, Map<String, Long> errors,
+                          DurationStatistics latency) {
+            this.name = name;
+            this.inFlight = inFlight;
+            this.errorCount = errorCount;
+            this.errors = errors;
+            this.latency = latency;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        /**
+         * @return Number of errors by error state or exception class name.
+         */
+        public Map<String, Long> getErrors() {
+            return errors;
+        }
+
+        public DurationStatistics getLatency() {
+            return latency;
+        }
+    }
+}
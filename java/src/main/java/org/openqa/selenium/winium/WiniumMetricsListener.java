@@ -0,0 +1,39 @@
+package org.openqa.selenium.winium;
+
+/**
+ * Receives timings of commands sent by {@link WiniumDriverCommandExecutor}
+ * and of driver process start and stop in {@link WiniumDriverService}.
+ * Implementations are called on the thread executing the command and must be thread safe and fast.
+ * See {@link WiniumMetrics} for a ready-to-use implementation.
+ */
+public interface WiniumMetricsListener {
+    /**
+     * Called right before the command is sent.
+     *
+     * @param commandName Name of the command.
+     */
+    void commandStarted(String commandName);
+
+    /**
+     * Called after the response for the command is received or sending it failed.
+     *
+     * @param commandName Name of the command.
+     * @param durationNanos Time spent on the command in nanoseconds.
+     * @param error Error state returned by the driver or the exception class name, null if the command succeeded.
+     */
+    void commandFinished(String commandName, long durationNanos, String error);
+
+    /**
+     * Called after the driver process has been started and became available.
+     *
+     * @param durationNanos Time spent on the start in nanoseconds.
+     */
+    void serviceStarted(long durationNanos);
+
+    /**
+     * Called after the driver process has been stopped.
+     *
+     * @param durationNanos Time spent on the stop in nanoseconds.
+     */
+    void serviceStopped(long durationNanos);
+}
@@ -0,0 +1,33 @@
+package org.openqa.selenium.winium;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link WiniumMetrics}.
+ */
+public interface WiniumMetricsMXBean {
+    /**
+     * @return Number of commands sent and not yet answered.
+     */
+    int getInFlightCommands();
+
+    /**
+     * @return Statistics of every command seen so far, by command name.
+     */
+    Map<String, WiniumMetrics.CommandStatistics> getCommandStatistics();
+
+    /**
+     * @return Statistics of driver process starts.
+     */
+    WiniumMetrics.DurationStatistics getServiceStartStatistics();
+
+    /**
+     * @return Statistics of driver process stops.
+     */
+    WiniumMetrics.DurationStatistics getServiceStopStatistics();
+
+    /**
+     * Clears all collected statistics.
+     */
+    void reset();
+}
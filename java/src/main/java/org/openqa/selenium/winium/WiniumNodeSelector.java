@@ -0,0 +1,378 @@
+package org.openqa.selenium.winium;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.http.HttpClient;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Spreads sessions across several remote Winium servers without a Selenium Grid hub.
+ * Every new session goes to the healthy node with the fewest active sessions or the lowest command latency.
+ * A node which can not be reached or drops a connection is put aside for a cooldown period,
+ * and the session is retried on the next node. Errors reported by the driver itself, e.g. a wrong application
+ * path, are thrown right away, because the same options would fail on every node.
+ * <pre>{@code
+ * WiniumNodeSelector selector = new WiniumNodeSelector.Builder()
+ *     .withNode(new URL("http://agent-1:9999"))
+ *     .withNode(new URL("http://agent-2:9999"))
+ *     .withStrategy(WiniumNodeSelector.Strategy.LEAST_SESSIONS)
+ *     .build();
+ *
+ * WiniumDriver driver = selector.newDriver(options);
+ * // ...
+ * driver.quit();   // frees the slot on the node
+ * }</pre>
+ */
+public class WiniumNodeSelector {
+    private static final Logger LOG = Logger.getLogger(WiniumNodeSelector.class.getName());
+
+    /**
+     * How the node for a new session is chosen among healthy nodes.
+     */
+    public enum Strategy {
+        /**
+         * Node with the fewest active sessions, ties are broken by latency.
+         */
+        LEAST_SESSIONS,
+
+        /**
+         * Node with the lowest average command latency, ties are broken by active sessions.
+         */
+        LOWEST_LATENCY
+    }
+
+    private final ImmutableList<Node> nodes;
+    private final Strategy strategy;
+    private final int maxAttempts;
+    private final long failureCooldownNanos;
+    private final HttpClient.Factory clientFactory;
+
+    protected WiniumNodeSelector(List<URL> nodeUrls, Strategy strategy, int maxAttempts, long failureCooldownNanos,
+                                 HttpClient.Factory clientFactory) {
+        ImmutableList.Builder<Node> nodesBuilder = new ImmutableList.Builder<Node>();
+        for (URL url : nodeUrls) {
+            nodesBuilder.add(new Node(url));
+        }
+        this.nodes = nodesBuilder.build();
+        this.strategy = strategy;
+        this.maxAttempts = maxAttempts;
+        this.failureCooldownNanos = failureCooldownNanos;
+        this.clientFactory = clientFactory;
+    }
+
+    /**
+     * Starts a new session on the best node, retrying on other nodes if the node can not be reached.
+     *
+     * @param options The {@link WiniumOptions} used to initialize the driver.
+     * @return The driver connected to the chosen node.
+     */
+    public WiniumDriver newDriver(WiniumOptions options) {
+        WebDriverException lastError = null;
+        List<Node> candidates = orderedCandidates();
+        for (int attempt = 0; attempt < Math.min(maxAttempts, candidates.size()); attempt++) {
+            Node node = candidates.get(attempt);
+            NodeCommandExecutor executor = new NodeCommandExecutor(node, clientFactory);
+            node.activeSessions.incrementAndGet();
+            try {
+                return new WiniumDriver(executor, options);
+            } catch (WebDriverException e) {
+                executor.endSession();
+                if (!(Throwables.getRootCause(e) instanceof IOException)) {
+                    throw e;
+                }
+                node.markFailed(failureCooldownNanos);
+                LOG.log(Level.WARNING, "Failed to start a session on " + node.getUrl(), e);
+                lastError = e;
+            }
+        }
+        throw new WebDriverException("Failed to start a session on any of the nodes", lastError);
+    }
+
+    /**
+     * @return All nodes with their current state.
+     */
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    private List<Node> orderedCandidates() {
+        long now = System.nanoTime();
+        List<Candidate> candidates = new ArrayList<Candidate>(nodes.size());
+        for (Node node : nodes) {
+            candidates.add(new Candidate(node, now));
+        }
+        Collections.sort(candidates, new Comparator<Candidate>() {
+            @Override
+            public int compare(Candidate first, Candidate second) {
+                if (first.healthy != second.healthy) {
+                    return first.healthy ? -1 : 1;
+                }
+
+                int sessions = compareLongs(first.activeSessions, second.activeSessions);
+                int latency = compareLongs(first.latencyNanos, second.latencyNanos);
+                if (strategy == Strategy.LOWEST_LATENCY) {
+                    return latency != 0 ? latency : sessions;
+                }
+                return sessions != 0 ? sessions : latency;
+            }
+        });
+
+        List<Node> ordered = new ArrayList<Node>(candidates.size());
+        for (Candidate candidate : candidates) {
+            ordered.add(candidate.node);
+        }
+        return ordered;
+    }
+
+    private static int compareLongs(long first, long second) {
+        return first < second ? -1 : (first == second ? 0 : 1);
+    }
+
+    /**
+     * Snapshot of the node state, so the order does not change while sorting.
+     */
+    private static class Candidate {
+        private final Node node;
+        private final boolean healthy;
+        private final long activeSessions;
+        private final long latencyNanos;
+
+        Candidate(Node node, long now) {
+            this.node = node;
+            this.healthy = node.isHealthy(now);
+            this.activeSessions = node.activeSessions.get();
+            this.latencyNanos = node.latencyNanos.get();
+        }
+    }
+
+    /**
+     * State of a single remote Winium server.
+     */
+    public static class Node {
+        private static final int LATENCY_WEIGHT_SHIFT = 3;
+
+        private final URL url;
+        private final AtomicInteger activeSessions = new AtomicInteger();
+        private final AtomicLong latencyNanos = new AtomicLong();
+        private final AtomicLong failedUntilNanos = new AtomicLong();
+        private final AtomicInteger failureCount = new AtomicInteger();
+        private volatile boolean failed;
+
+        Node(URL url) {
+            this.url = url;
+        }
+
+        public URL getUrl() {
+            return url;
+        }
+
+        public int getActiveSessions() {
+            return activeSessions.get();
+        }
+
+        /**
+         * @return Exponentially weighted average of command durations in microseconds.
+         */
+        public long getLatencyMicros() {
+            return TimeUnit.NANOSECONDS.toMicros(latencyNanos.get());
+        }
+
+        public int getFailureCount() {
+            return failureCount.get();
+        }
+
+        /**
+         * @return false while the node is in the cooldown after a failure.
+         */
+        public boolean isHealthy() {
+            return isHealthy(System.nanoTime());
+        }
+
+        boolean isHealthy(long now) {
+            return !failed || now - failedUntilNanos.get() >= 0;
+        }
+
+        void markFailed(long cooldownNanos) {
+            failureCount.incrementAndGet();
+            failedUntilNanos.set(System.nanoTime() + cooldownNanos);
+            failed = true;
+        }
+
+        void recordLatency(long durationNanos) {
+            while (true) {
+                long average = latencyNanos.get();
+                long updated = average == 0 ? durationNanos
+                        : average + ((durationNanos - average) >> LATENCY_WEIGHT_SHIFT);
+                if (latencyNanos.compareAndSet(average, updated)) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return url.toString();
+        }
+    }
+
+    private class NodeCommandExecutor extends WiniumDriverCommandExecutor {
+        private final Node node;
+        private final AtomicBoolean sessionEnded = new AtomicBoolean();
+
+        NodeCommandExecutor(Node node, HttpClient.Factory clientFactory) {
+            super(node.getUrl(), clientFactory);
+            this.node = node;
+        }
+
+        /**
+         * Session start and quit are excluded from latency, and session start failures are
+         * handled by {@link WiniumNodeSelector#newDriver(WiniumOptions)}.
+         */
+        @Override
+        public Response execute(Command command) throws IOException {
+            String commandName = command.getName();
+            boolean lifecycleCommand = DriverCommand.NEW_SESSION.equals(commandName)
+                    || DriverCommand.QUIT.equals(commandName);
+            long start = System.nanoTime();
+            try {
+                Response response = super.execute(command);
+                if (!lifecycleCommand) {
+                    node.recordLatency(System.nanoTime() - start);
+                }
+                return response;
+            } catch (IOException e) {
+                markFailed(commandName);
+                throw e;
+            } catch (RuntimeException e) {
+                if (Throwables.getRootCause(e) instanceof IOException) {
+                    markFailed(commandName);
+                }
+                throw e;
+            } finally {
+                if (DriverCommand.QUIT.equals(commandName)) {
+                    endSession();
+                }
+            }
+        }
+
+        void endSession() {
+            if (sessionEnded.compareAndSet(false, true)) {
+                node.activeSessions.decrementAndGet();
+            }
+        }
+
+        private void markFailed(String commandName) {
+            if (!DriverCommand.NEW_SESSION.equals(commandName)) {
+                node.markFailed(failureCooldownNanos);
+            }
+        }
+    }
+
+    public static class Builder {
+        private final List<URL> nodeUrls = new ArrayList<URL>();
+        private Strategy strategy = Strategy.LEAST_SESSIONS;
+        private int maxAttempts = Integer.MAX_VALUE;
+        private long failureCooldownNanos = TimeUnit.SECONDS.toNanos(30);
+        private HttpClient.Factory clientFactory = null;
+
+        /**
+         * Adds a remote Winium server.
+         *
+         * @param url URL of the server, e.g. http://agent-1:9999.
+         * @return A self reference.
+         */
+        public Builder withNode(URL url) {
+            nodeUrls.add(checkNotNull(url));
+            return this;
+        }
+
+        /**
+         * Adds remote Winium servers.
+         *
+         * @param urls URLs of the servers.
+         * @return A self reference.
+         */
+        public Builder withNodes(List<URL> urls) {
+            for (URL url : urls) {
+                withNode(url);
+            }
+            return this;
+        }
+
+        /**
+         * Sets how the node for a new session is chosen.
+         *
+         * @param strategy The strategy, {@link Strategy#LEAST_SESSIONS} by default.
+         * @return A self reference.
+         */
+        public Builder withStrategy(Strategy strategy) {
+            this.strategy = checkNotNull(strategy);
+            return this;
+        }
+
+        /**
+         * Sets on how many nodes a new session is tried before giving up. By default every node is tried once.
+         *
+         * @param maxAttempts Maximal number of nodes to try.
+         * @return A self reference.
+         */
+        public Builder withMaxAttempts(int maxAttempts) {
+            checkArgument(maxAttempts > 0, "Max attempts must be positive: %s", maxAttempts);
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Sets how long a failed node is tried only after all healthy nodes.
+         *
+         * @param cooldown Cooldown after a failure.
+         * @param unit Unit of the cooldown.
+         * @return A self reference.
+         */
+        public Builder withFailureCooldown(long cooldown, TimeUnit unit) {
+            checkArgument(cooldown >= 0, "Cooldown must not be negative: %s", cooldown);
+            this.failureCooldownNanos = unit.toNanos(cooldown);
+            return this;
+        }
+
+        /**
+         * Sets the factory of HTTP clients used by all drivers, e.g. {@link WiniumHttpClientFactory}.
+         *
+         * @param clientFactory The factory.
+         * @return A self reference.
+         */
+        public Builder withClientFactory(HttpClient.Factory clientFactory) {
+            this.clientFactory = clientFactory;
+            return this;
+        }
+
+        /**
+         * Creates a new {@link WiniumNodeSelector}.
+         *
+         * @return The new {@link WiniumNodeSelector} object.
+         */
+        public WiniumNodeSelector build() {
+            checkArgument(!nodeUrls.isEmpty(), "At least one node is required");
+            return new WiniumNodeSelector(nodeUrls, strategy, maxAttempts, failureCooldownNanos, clientFactory);
+        }
+    }
+}
@@ -7,7 +7,8 @@ import org.openqa.selenium.Capabilities;
  */
 public interface WiniumOptions {
     /**
-     * Convert options to DesiredCapabilities for one of Winium Drivers
+     * Convert options to DesiredCapabilities for one of Winium Drivers.
+     * Options of this package return a snapshot which can not be changed and is reused until a setter is called.
      * @return The DesiredCapabilities for Winium Driver with these options.
      */
     Capabilities toCapabilities();
@@ -0,0 +1,175 @@
+package org.openqa.selenium.winium;
+
+import org.openqa.selenium.WebDriverException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Hands out ports of a fixed range to driver services, so services built at the same time on one host
+ * never get the same port. Ports are reserved with compare-and-set, without locks, and handed out round-robin,
+ * so a released port is reused as late as possible. A port is only handed out if it can be bound
+ * without address reuse, which skips ports used by other processes and ports still in TIME_WAIT;
+ * such ports are retried after a delay.
+ * <pre>{@code
+ * WiniumPortAllocator ports = new WiniumPortAllocator(9000, 9099);
+ *
+ * WiniumDriverService service = new WiniumDriverService.Builder()
+ *     .usingAnyFreePort()
+ *     .withPortAllocator(ports)
+ *     .buildDesktopService();
+ * }</pre>
+ * The service returns its port to the allocator when it stops and takes it again when it is restarted.
+ */
+public class WiniumPortAllocator {
+    private static final long RESERVED = Long.MAX_VALUE;
+    private static final long DEFAULT_BUSY_PORT_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int firstPort;
+    private final int lastPort;
+    private final long origin = System.nanoTime();
+    private final AtomicLongArray availableAt;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private volatile long busyPortDelayNanos = DEFAULT_BUSY_PORT_DELAY_NANOS;
+
+    /**
+     * Creates an allocator of the ports from the first to the last one inclusive.
+     *
+     * @param firstPort The first port of the range.
+     * @param lastPort The last port of the range.
+     */
+    public WiniumPortAllocator(int firstPort, int lastPort) {
+        checkArgument(firstPort > 0 && lastPort <= 65535 && firstPort <= lastPort,
+                "Invalid port range: %s-%s", firstPort, lastPort);
+        this.firstPort = firstPort;
+        this.lastPort = lastPort;
+        this.availableAt = new AtomicLongArray(lastPort - firstPort + 1);
+    }
+
+    /**
+     * Sets how long a port which could not be bound, e.g. because it is still in TIME_WAIT, is skipped.
+     *
+     * @param delay The delay, 1 second by default.
+     * @param unit Unit of the delay.
+     */
+    public void setBusyPortDelay(long delay, TimeUnit unit) {
+        checkArgument(delay >= 0, "Delay must not be negative: %s", delay);
+        this.busyPortDelayNanos = unit.toNanos(delay);
+    }
+
+    /**
+     * @return The first port of the range.
+     */
+    public int getFirstPort() {
+        return firstPort;
+    }
+
+    /**
+     * @return The last port of the range.
+     */
+    public int getLastPort() {
+        return lastPort;
+    }
+
+    /**
+     * @return Number of ports currently reserved.
+     */
+    public int getReservedCount() {
+        int reserved = 0;
+        for (int i = 0; i < availableAt.length(); i++) {
+            if (availableAt.get(i) == RESERVED) {
+                reserved++;
+            }
+        }
+        return reserved;
+    }
+
+    /**
+     * Reserves a free port of the range.
+     *
+     * @return The port, reserved until {@link #release(int)} is called.
+     * @throws WebDriverException If no port of the range is free.
+     */
+    public int reserve() {
+        int size = availableAt.length();
+        for (int attempt = 0; attempt < size; attempt++) {
+            int index = (cursor.getAndIncrement() & Integer.MAX_VALUE) % size;
+            long now = now();
+            long available = availableAt.get(index);
+            if (available > now || !availableAt.compareAndSet(index, available, RESERVED)) {
+                continue;
+            }
+
+            int port = firstPort + index;
+            if (isBindable(port)) {
+                return port;
+            }
+            availableAt.set(index, now + busyPortDelayNanos);
+        }
+
+        throw new WebDriverException(String.format("No free port in range %d-%d", firstPort, lastPort));
+    }
+
+    /**
+     * Returns the port to the allocator. Ports outside of the range are ignored.
+     *
+     * @param port The reserved port.
+     */
+    public void release(int port) {
+        if (port < firstPort || port > lastPort) {
+            return;
+        }
+        availableAt.set(port - firstPort, now());
+    }
+
+    /**
+     * Reserves the given port again for the service it was reserved for before, without checking it can be bound.
+     *
+     * @param port The port released by the service.
+     * @throws WebDriverException If the port has been reserved by another service in the meantime.
+     */
+    void reclaim(int port) {
+        checkArgument(port >= firstPort && port <= lastPort, "Port %s is not in range %s-%s",
+                port, firstPort, lastPort);
+        int index = port - firstPort;
+        while (true) {
+            long available = availableAt.get(index);
+            if (available == RESERVED) {
+                throw new WebDriverException("Port " + port + " has been reserved by another service");
+            }
+            if (availableAt.compareAndSet(index, available, RESERVED)) {
+                return;
+            }
+        }
+    }
+
+    private long now() {
+        return System.nanoTime() - origin;
+    }
+
+    private static boolean isBindable(int port) {
+        ServerSocket socket = null;
+        try {
+            socket = new ServerSocket();
+            socket.setReuseAddress(false);
+            socket.bind(new InetSocketAddress(port));
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // The port has been checked already
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.openqa.selenium.winium;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * HTTP exchanges between the client and a Winium driver captured by {@link WiniumRecordingClientFactory},
+ * in the order the responses were received. Recordings are served back by a replay server,
+ * so the client can be profiled and load tested without Windows.
+ * <p>
+ * The file is a gzip stream starting with the magic number {@code "WNR1"}, followed by one record
+ * per exchange: a marker byte 1, method and path as modified UTF-8, status code, latency in microseconds,
+ * and length-prefixed request and response bodies. A marker byte 0 ends the stream; a recording
+ * which was not closed can be read up to its last complete record.
+ */
+public class WiniumRecording {
+    static final int MAGIC = 0x574E5231;
+    static final int EXCHANGE_MARKER = 1;
+    static final int END_MARKER = 0;
+
+    private final List<Exchange> exchanges;
+
+    WiniumRecording(List<Exchange> exchanges) {
+        this.exchanges = Collections.unmodifiableList(exchanges);
+    }
+
+    /**
+     * Reads a recording written by {@link WiniumRecordingClientFactory}.
+     *
+     * @param file The recording file.
+     * @return The new {@link WiniumRecording} object.
+     * @throws IOException If the file can not be read or is not a recording.
+     */
+    public static WiniumRecording read(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file))));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a Winium recording: " + file);
+            }
+
+            List<Exchange> exchanges = new ArrayList<Exchange>();
+            try {
+                while (in.readByte() == EXCHANGE_MARKER) {
+                    exchanges.add(readExchange(in));
+                }
+            } catch (EOFException e) {
+                // The recording was not closed, keep the complete records
+            }
+            return new WiniumRecording(exchanges);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return The exchanges in the order the responses were received.
+     */
+    public List<Exchange> getExchanges() {
+        return exchanges;
+    }
+
+    static void writeExchange(DataOutputStream out, Exchange exchange) throws IOException {
+        out.writeByte(EXCHANGE_MARKER);
+        out.writeUTF(exchange.method);
+        out.writeUTF(exchange.path);
+        out.writeShort(exchange.status);
+        out.writeLong(exchange.latencyMicros);
+        writeBytes(out, exchange.requestBody);
+        writeBytes(out, exchange.responseBody);
+    }
+
+    private static Exchange readExchange(DataInputStream in) throws IOException {
+        String method = in.readUTF();
+        String path = in.readUTF();
+        int status = in.readUnsignedShort();
+        long latencyMicros = in.readLong();
+        byte[] requestBody = readBytes(in);
+        byte[] responseBody = readBytes(in);
+        return new Exchange(method, path, status, latencyMicros, requestBody, responseBody);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupted recording, negative body length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Single request to the driver and its response.
+     */
+    public static class Exchange {
+        private final String method;
+        private final String path;
+        private final int status;
+        private final long latencyMicros;
+        private final byte[] requestBody;
+        private final byte[] responseBody;
+
+        Exchange(String method, String path, int status, long latencyMicros, byte[] requestBody,
+                 byte[] responseBody) {
+            this.method = method;
+            this.path = path;
+            this.status = status;
+            this.latencyMicros = latencyMicros;
+            this.requestBody = requestBody;
+            this.responseBody = responseBody;
+        }
+
+        /**
+         * @return HTTP method, e.g. "POST".
+         */
+        public String getMethod() {
+            return method;
+        }
+
+        /**
+         * @return Request path relative to the driver URL, e.g. "/session/1/element".
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return HTTP status code of the response.
+         */
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * @return Time from sending the request to receiving the response, in microseconds.
+         */
+        public long getLatencyMicros() {
+            return latencyMicros;
+        }
+
+        /**
+         * @return Request body, empty if there was none.
+         */
+        public byte[] getRequestBody() {
+            return requestBody.clone();
+        }
+
+        /**
+         * @return Response body, empty if there was none.
+         */
+        public byte[] getResponseBody() {
+            return responseBody.clone();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.openqa.selenium.winium;
+
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.openqa.selenium.remote.internal.ApacheHttpClient;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link HttpClient.Factory} which records every exchange with the driver to a file while passing it on
+ * to another factory. The recording can be read with {@link WiniumRecording#read(File)} and served back
+ * by a replay server to profile and load test the client without a Windows driver.
+ * <pre>{@code
+ * WiniumRecordingClientFactory recorder = new WiniumRecordingClientFactory(new File("login.wnr"), null);
+ * WiniumDriver driver = new WiniumDriver(new WiniumDriverCommandExecutor(service, recorder), options);
+ * // ...
+ * driver.quit();
+ * recorder.close();
+ * }</pre>
+ * Exchanges which fail without a response, e.g. on a connection error, are not recorded.
+ */
+public class WiniumRecordingClientFactory implements HttpClient.Factory, Closeable {
+    private static final byte[] NO_BODY = new byte[0];
+
+    private final HttpClient.Factory delegate;
+    private final DataOutputStream out;
+    private final ReentrantLock lock = new ReentrantLock();
+    private boolean closed;
+
+    /**
+     * Creates the recording file, replacing an existing one.
+     *
+     * @param file The recording file.
+     * @param delegate Factory of clients sending the requests, or null for the default Selenium client.
+     * @throws IOException If the file can not be created.
+     */
+    public WiniumRecordingClientFactory(File file, HttpClient.Factory delegate) throws IOException {
+        this.delegate = delegate != null ? delegate : new ApacheHttpClient.Factory();
+        this.out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))));
+        out.writeInt(WiniumRecording.MAGIC);
+    }
+
+    @Override
+    public HttpClient createClient(URL url) {
+        final HttpClient client = delegate.createClient(checkNotNull(url));
+        return new HttpClient() {
+            @Override
+            public HttpResponse execute(HttpRequest request, boolean followRedirects) throws IOException {
+                long start = System.nanoTime();
+                HttpResponse response = client.execute(request, followRedirects);
+                long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+                record(new WiniumRecording.Exchange(request.getMethod().name(), request.getUri(),
+                        response.getStatus(), latencyMicros, bodyOf(request.getContent()),
+                        bodyOf(response.getContent())));
+                return response;
+            }
+        };
+    }
+
+    /**
+     * Ends the recording. Exchanges after closing are not recorded.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            out.writeByte(WiniumRecording.END_MARKER);
+            out.close();
+        } catch (IOException e) {
+            throw new WebDriverException("Failed to write the recording", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(WiniumRecording.Exchange exchange) {
+        lock.lock();
+        try {
+            if (!closed) {
+                WiniumRecording.writeExchange(out, exchange);
+            }
+        } catch (IOException e) {
+            throw new WebDriverException("Failed to write the recording", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static byte[] bodyOf(byte[] content) {
+        return content != null ? content : NO_BODY;
+    }
+}
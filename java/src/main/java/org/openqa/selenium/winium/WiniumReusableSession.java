@@ -0,0 +1,281 @@
+package org.openqa.selenium.winium;
+
+import com.google.common.base.Supplier;
+import org.openqa.selenium.UnsupportedCommandException;
+import org.openqa.selenium.WebDriverException;
+
+import java.io.Closeable;
+import java.net.URL;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keeps one application session alive across tests. Instead of quitting the driver and launching
+ * the application again for every test, the session runs a reset hook between tests and relaunches
+ * the application only when the health check or the reset hook fails.
+ * Calling {@code quit()} on the driver returned by {@link #acquire()} does nothing,
+ * the session is ended by {@link #close()}.
+ * <pre>{@code
+ * WiniumReusableSession session = new WiniumReusableSession.Builder()
+ *     .withResetHook(new WiniumReusableSession.ResetHook() {
+ *         public void reset(WiniumDriver driver) {
+ *             driver.findElementById("CloseAllDocuments").click();
+ *         }
+ *     })
+ *     .build(service, options);
+ *
+ * {@literal @Before}
+ * public void createDriver() {
+ *     driver = session.acquire();
+ * }
+ *
+ * {@literal @AfterClass}
+ * public static void closeSession() {
+ *     session.close();
+ * }
+ * }</pre>
+ */
+public class WiniumReusableSession implements Closeable {
+    private static final Logger LOG = Logger.getLogger(WiniumReusableSession.class.getName());
+
+    private final Supplier<WiniumDriverCommandExecutor> executorFactory;
+    private final WiniumOptions options;
+    private final ResetHook resetHook;
+    private final HealthCheck healthCheck;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private ReusableDriver driver;
+    private int launchCount;
+    private int reuseCount;
+    private boolean closed;
+
+    protected WiniumReusableSession(Supplier<WiniumDriverCommandExecutor> executorFactory, WiniumOptions options,
+                                    ResetHook resetHook, HealthCheck healthCheck) {
+        this.executorFactory = executorFactory;
+        this.options = options;
+        this.resetHook = resetHook;
+        this.healthCheck = healthCheck;
+    }
+
+    /**
+     * Returns the driver for the next test. The first call launches the application. Later calls check
+     * the health of the session and run the reset hook, and relaunch the application if either fails.
+     *
+     * @return The driver, valid until {@link #close()}.
+     */
+    public WiniumDriver acquire() {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new WebDriverException("Session is closed");
+            }
+
+            if (driver != null) {
+                if (isHealthy() && reset()) {
+                    reuseCount++;
+                    return driver;
+                }
+                terminate();
+            }
+
+            driver = new ReusableDriver(executorFactory.get(), options);
+            launchCount++;
+            return driver;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Quits the driver and the application.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            if (driver != null) {
+                terminate();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return How many times the application has been launched, including relaunches after failed checks.
+     */
+    public int getLaunchCount() {
+        lock.lock();
+        try {
+            return launchCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return How many times the running application has been reused.
+     */
+    public int getReuseCount() {
+        lock.lock();
+        try {
+            return reuseCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isHealthy() {
+        try {
+            return healthCheck.isHealthy(driver);
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Health check failed, relaunching the application", e);
+            return false;
+        }
+    }
+
+    private boolean reset() {
+        try {
+            resetHook.reset(driver);
+            return true;
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Reset hook failed, relaunching the application", e);
+            return false;
+        }
+    }
+
+    private void terminate() {
+        try {
+            driver.terminate();
+        } catch (RuntimeException e) {
+            LOG.log(Level.FINE, "Failed to quit the unhealthy session", e);
+        } finally {
+            driver = null;
+        }
+    }
+
+    /**
+     * Brings the application back to its initial state between tests.
+     */
+    public interface ResetHook {
+        /**
+         * @param driver The driver of the running session.
+         */
+        void reset(WiniumDriver driver);
+    }
+
+    /**
+     * Tells whether the running session can be reused.
+     */
+    public interface HealthCheck {
+        /**
+         * @param driver The driver of the running session.
+         * @return true if the session can be reused, false to relaunch the application.
+         */
+        boolean isHealthy(WiniumDriver driver);
+    }
+
+    private static class ReusableDriver extends WiniumDriver {
+        ReusableDriver(WiniumDriverCommandExecutor executor, WiniumOptions options) {
+            super(executor, options);
+        }
+
+        /**
+         * Keeps the session alive, it is ended by {@link WiniumReusableSession#close()}.
+         */
+        @Override
+        public void quit() {
+        }
+
+        void terminate() {
+            super.quit();
+        }
+    }
+
+    public static class Builder {
+        private ResetHook resetHook = new ResetHook() {
+            @Override
+            public void reset(WiniumDriver driver) {
+            }
+        };
+
+        private HealthCheck healthCheck = new HealthCheck() {
+            @Override
+            public boolean isHealthy(WiniumDriver driver) {
+                WiniumDriverService service = driver.getWiniumCommandExecutor().getService();
+                if ((service != null) && !service.isRunning()) {
+                    return false;
+                }
+
+                try {
+                    driver.getWindowHandle();
+                } catch (UnsupportedCommandException e) {
+                    // The driver has responded, the session is alive
+                }
+                return true;
+            }
+        };
+
+        /**
+         * Sets the hook run before every reuse of the session.
+         *
+         * @param resetHook The hook. If it throws, the application is relaunched.
+         * @return A self reference.
+         */
+        public Builder withResetHook(ResetHook resetHook) {
+            this.resetHook = checkNotNull(resetHook);
+            return this;
+        }
+
+        /**
+         * Sets the check run before every reuse of the session. By default the driver process must be running
+         * and the current window handle must be available.
+         *
+         * @param healthCheck The check.
+         * @return A self reference.
+         */
+        public Builder withHealthCheck(HealthCheck healthCheck) {
+            this.healthCheck = checkNotNull(healthCheck);
+            return this;
+        }
+
+        /**
+         * Creates a new {@link WiniumReusableSession} which launches the application using the service.
+         *
+         * @param service The {@link WiniumDriverService} to use, it is restarted on relaunch.
+         * @param options The {@link WiniumOptions} used to launch the application.
+         * @return The new {@link WiniumReusableSession} object.
+         */
+        public WiniumReusableSession build(final WiniumDriverService service, WiniumOptions options) {
+            checkNotNull(service);
+            return new WiniumReusableSession(new Supplier<WiniumDriverCommandExecutor>() {
+                @Override
+                public WiniumDriverCommandExecutor get() {
+                    return new WiniumDriverCommandExecutor(service);
+                }
+            }, checkNotNull(options), resetHook, healthCheck);
+        }
+
+        /**
+         * Creates a new {@link WiniumReusableSession} which launches the application on a remote driver.
+         *
+         * @param remoteAddress URL containing the address of the WiniumDriver remote server.
+         * @param options The {@link WiniumOptions} used to launch the application.
+         * @return The new {@link WiniumReusableSession} object.
+         */
+        public WiniumReusableSession build(final URL remoteAddress, WiniumOptions options) {
+            checkNotNull(remoteAddress);
+            return new WiniumReusableSession(new Supplier<WiniumDriverCommandExecutor>() {
+                @Override
+                public WiniumDriverCommandExecutor get() {
+                    return new WiniumDriverCommandExecutor(remoteAddress);
+                }
+            }, checkNotNull(options), resetHook, healthCheck);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package org.openqa.selenium.winium;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.DriverCommand;
+
+import javax.imageio.ImageIO;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Takes screenshots of a session and writes them to a directory on a background thread.
+ * The test thread only waits for the driver to take the screenshot; decoding and writing the image
+ * happen in the background, and the base64 payload is decoded as a stream straight into the file.
+ * Up to 16 screenshots wait for the background thread, taking more blocks the test thread until one is written.
+ * <p>
+ * With delta compression only the region which differs from the previous screenshot is written,
+ * as {@code <name>.delta-<x>-<y>.png}, and nothing is written if the screen has not changed.
+ * Every {@code keyFrameInterval}-th screenshot, and every screenshot whose size has changed,
+ * is written in full as {@code <name>.png}, and so is the next screenshot after one failed to be written.
+ * Use {@link #compose(List)} to restore a screenshot.
+ * A pipeline must be used by a single driver, because deltas refer to the previous screenshot.
+ * <pre>{@code
+ * WiniumScreenshots screenshots = new WiniumScreenshots.Builder()
+ *     .withDirectory(new File("screenshots"))
+ *     .withDeltaCompression(true)
+ *     .build(driver);
+ *
+ * screenshots.capture("01-login");
+ * // ...
+ * screenshots.close();
+ * }</pre>
+ */
+public class WiniumScreenshots implements Closeable {
+    private static final Pattern DELTA_NAME = Pattern.compile("\\.delta-(\\d+)-(\\d+)\\.png$");
+    private static final int MAX_PENDING_SCREENSHOTS = 16;
+
+    private final WiniumDriver driver;
+    private final File directory;
+    private final boolean deltaCompression;
+    private final int keyFrameInterval;
+    private final ListeningExecutorService executor;
+
+    private BufferedImage previousFrame;
+    private int framesSinceKeyFrame;
+
+    protected WiniumScreenshots(WiniumDriver driver, File directory, boolean deltaCompression, int keyFrameInterval) {
+        this.driver = driver;
+        this.directory = directory;
+        this.deltaCompression = deltaCompression;
+        this.keyFrameInterval = keyFrameInterval;
+        this.executor = MoreExecutors.listeningDecorator(new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(MAX_PENDING_SCREENSHOTS),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("winium-screenshots-%d").build(),
+                new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(Runnable task, ThreadPoolExecutor pool) {
+                        if (pool.isShutdown()) {
+                            throw new RejectedExecutionException("Screenshots have been closed");
+                        }
+                        try {
+                            pool.getQueue().put(task);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException(e);
+                        }
+                    }
+                }));
+    }
+
+    /**
+     * Takes a screenshot and writes it in the background.
+     *
+     * @param name Name of the file without extension, unique within the directory.
+     * @return Future completed with the written file, or with null if delta compression is enabled
+     * and the screen has not changed.
+     */
+    public ListenableFuture<File> capture(final String name) {
+        checkNotNull(name);
+        final String base64 = (String) driver.executeCommand(DriverCommand.SCREENSHOT,
+                ImmutableMap.<String, Object>of()).getValue();
+        return executor.submit(new Callable<File>() {
+            @Override
+            public File call() throws IOException {
+                return deltaCompression ? writeFrame(name, base64) : writeImage(name, base64);
+            }
+        });
+    }
+
+    /**
+     * Waits for all pending screenshots to be written and stops the background thread.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                throw new WebDriverException("Timed out waiting for screenshots to be written");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException(e);
+        }
+    }
+
+    /**
+     * Restores the last screenshot from a full screenshot and the deltas written after it.
+     *
+     * @param frames Files written by {@link #capture(String)}, starting with a full screenshot, in capture order.
+     * @return The restored screenshot.
+     * @throws IOException If a file can not be read.
+     */
+    public static BufferedImage compose(List<File> frames) throws IOException {
+        checkArgument(!frames.isEmpty(), "At least one frame is required");
+        BufferedImage image = null;
+        for (File frame : frames) {
+            BufferedImage read = ImageIO.read(frame);
+            Matcher delta = DELTA_NAME.matcher(frame.getName());
+            if (!delta.find()) {
+                image = copyOf(read);
+                continue;
+            }
+
+            checkArgument(image != null, "The first frame must be a full screenshot: %s", frame);
+            image.getRaster().setRect(Integer.parseInt(delta.group(1)), Integer.parseInt(delta.group(2)),
+                    copyOf(read).getRaster());
+        }
+        return image;
+    }
+
+    private File writeImage(String name, String base64) throws IOException {
+        File file = new File(directory, name + ".png");
+        InputStream in = BaseEncoding.base64().decodingStream(new StringReader(base64));
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            ByteStreams.copy(in, out);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private File writeFrame(String name, String base64) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(base64.length() * 3 / 4);
+        ByteStreams.copy(BaseEncoding.base64().decodingStream(new StringReader(base64)), bytes);
+        BufferedImage frame = ImageIO.read(new ByteArrayInputStream(bytes.toByteArray()));
+        if (frame == null) {
+            throw new WebDriverException("Screenshot is not an image: " + name);
+        }
+
+        // The frame becomes the base of the next delta only once it has been written,
+        // so a failed write is followed by a key frame rather than a delta against a missing frame.
+        BufferedImage previous = previousFrame;
+        previousFrame = null;
+        boolean keyFrame = (previous == null) || (previous.getWidth() != frame.getWidth())
+                || (previous.getHeight() != frame.getHeight()) || (framesSinceKeyFrame + 1 >= keyFrameInterval);
+        if (keyFrame) {
+            File file = new File(directory, name + ".png");
+            OutputStream out = new FileOutputStream(file);
+            try {
+                bytes.writeTo(out);
+            } finally {
+                out.close();
+            }
+            previousFrame = frame;
+            framesSinceKeyFrame = 0;
+            return file;
+        }
+
+        Rectangle changed = changedRegion(previous, frame);
+        File file = null;
+        if (changed != null) {
+            file = new File(directory, String.format("%s.delta-%d-%d.png", name, changed.x, changed.y));
+            ImageIO.write(frame.getSubimage(changed.x, changed.y, changed.width, changed.height), "png", file);
+        }
+        previousFrame = frame;
+        framesSinceKeyFrame++;
+        return file;
+    }
+
+    /**
+     * @return Bounding box of the pixels which differ between images of the same size, or null if none differ.
+     */
+    private static Rectangle changedRegion(BufferedImage previous, BufferedImage frame) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int[] previousRow = new int[width];
+        int[] row = new int[width];
+        int left = width;
+        int right = -1;
+        int top = -1;
+        int bottom = -1;
+        for (int y = 0; y < height; y++) {
+            previous.getRGB(0, y, width, 1, previousRow, 0, width);
+            frame.getRGB(0, y, width, 1, row, 0, width);
+
+            int first = 0;
+            while ((first < width) && (previousRow[first] == row[first])) {
+                first++;
+            }
+            if (first == width) {
+                continue;
+            }
+            int last = width - 1;
+            while (previousRow[last] == row[last]) {
+                last--;
+            }
+
+            left = Math.min(left, first);
+            right = Math.max(right, last);
+            if (top < 0) {
+                top = y;
+            }
+            bottom = y;
+        }
+
+        return top < 0 ? null : new Rectangle(left, top, right - left + 1, bottom - top + 1);
+    }
+
+    private static BufferedImage copyOf(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        copy.getGraphics().drawImage(image, 0, 0, null);
+        return copy;
+    }
+
+    public static class Builder {
+        private File directory = new File(".");
+        private boolean deltaCompression = false;
+        private int keyFrameInterval = 10;
+
+        /**
+         * Sets the directory screenshots are written to. The directory is created if it does not exist.
+         *
+         * @param directory The directory, the working directory by default.
+         * @return A self reference.
+         */
+        public Builder withDirectory(File directory) {
+            this.directory = checkNotNull(directory);
+            return this;
+        }
+
+        /**
+         * Configures whether only the region changed since the previous screenshot is written.
+         *
+         * @param deltaCompression true to write changed regions, false to write every screenshot in full (default).
+         * @return A self reference.
+         */
+        public Builder withDeltaCompression(boolean deltaCompression) {
+            this.deltaCompression = deltaCompression;
+            return this;
+        }
+
+        /**
+         * Sets how often a full screenshot is written when delta compression is enabled,
+         * which bounds the number of deltas needed to restore a screenshot.
+         *
+         * @param keyFrameInterval Number of screenshots per full screenshot, 10 by default.
+         * @return A self reference.
+         */
+        public Builder withKeyFrameInterval(int keyFrameInterval) {
+            checkArgument(keyFrameInterval > 0, "Key frame interval must be positive: %s", keyFrameInterval);
+            this.keyFrameInterval = keyFrameInterval;
+            return this;
+        }
+
+        /**
+         * Creates a new {@link WiniumScreenshots} taking screenshots of the driver's session.
+         *
+         * @param driver The driver with a started session.
+         * @return The new {@link WiniumScreenshots} object.
+         */
+        public WiniumScreenshots build(WiniumDriver driver) {
+            checkNotNull(driver);
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new WebDriverException("Failed to create screenshot directory " + directory);
+            }
+            return new WiniumScreenshots(driver, directory, deltaCompression, keyFrameInterval);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.openqa.selenium.winium;
+
+import org.openqa.selenium.WebDriverException;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Decides when a started {@link WiniumDriverService} is ready to accept commands.
+ * Every strategy fails as soon as the driver process exits, instead of waiting for the whole timeout.
+ * <pre>{@code
+ * WiniumDriverService service = new WiniumDriverService.Builder()
+ *     .usingAnyFreePort()
+ *     .withReadinessStrategy(WiniumServiceReadiness.outputLine("Listening", 20, TimeUnit.SECONDS))
+ *     .buildDesktopService();
+ * }</pre>
+ */
+public abstract class WiniumServiceReadiness {
+    private static final int PROBE_TIMEOUT_MILLIS = 500;
+
+    /**
+     * Polls the status URL of the driver with exponential backoff: the first probes are sent
+     * with the initial interval, then the interval doubles up to the maximal one.
+     *
+     * @param initialInterval Interval between the first probes.
+     * @param maxInterval Maximal interval between probes.
+     * @param timeout How long to wait for the driver.
+     * @param unit Unit of the intervals and the timeout.
+     * @return The strategy.
+     */
+    public static WiniumServiceReadiness statusProbe(long initialInterval, long maxInterval, long timeout,
+                                                     TimeUnit unit) {
+        checkArgument(initialInterval > 0, "Initial interval must be positive: %s", initialInterval);
+        checkArgument(maxInterval >= initialInterval, "Max interval must not be less than initial interval: %s",
+                maxInterval);
+        return new StatusProbe(unit.toNanos(initialInterval), unit.toNanos(maxInterval), unit.toNanos(timeout));
+    }
+
+    /**
+     * Default strategy: polls the status URL starting with 10 ms intervals, backing off up to 250 ms,
+     * for at most 20 seconds.
+     *
+     * @return The strategy.
+     */
+    public static WiniumServiceReadiness statusProbe() {
+        return statusProbe(10, 250, 20000, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Waits for the driver to print a line containing the pattern, e.g. the "listening" message,
+     * then confirms readiness with a fast status probe.
+     *
+     * @param regex Regular expression the line has to contain.
+     * @param timeout How long to wait for the driver.
+     * @param unit Unit of the timeout.
+     * @return The strategy.
+     */
+    public static WiniumServiceReadiness outputLine(String regex, long timeout, TimeUnit unit) {
+        return new OutputLine(Pattern.compile(checkNotNull(regex)), unit.toNanos(timeout));
+    }
+
+    /**
+     * Blocks until the service is ready.
+     *
+     * @param service The service with a started process.
+     * @param output Output of the driver process.
+     * @throws WebDriverException If the process exits or the service is not ready in time.
+     */
+    abstract void awaitReady(WiniumDriverService service, ServiceOutputStream output);
+
+    private static void checkProcessAlive(WiniumDriverService service) {
+        if (!service.isRunning()) {
+            throw new WebDriverException("The driver server has exited before becoming available.");
+        }
+    }
+
+    private static boolean isAvailable(URL statusUrl) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) statusUrl.openConnection();
+            connection.setConnectTimeout(PROBE_TIMEOUT_MILLIS);
+            connection.setReadTimeout(PROBE_TIMEOUT_MILLIS);
+            try {
+                return connection.getResponseCode() == HttpURLConnection.HTTP_OK;
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static WebDriverException timeout() {
+        return new WebDriverException("Timed out waiting for driver server to start.");
+    }
+
+    private static WebDriverException interrupted(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return new WebDriverException("Interrupted while waiting for driver server to start.", e);
+    }
+
+    private static class StatusProbe extends WiniumServiceReadiness {
+        private final long initialIntervalNanos;
+        private final long maxIntervalNanos;
+        private final long timeoutNanos;
+
+        StatusProbe(long initialIntervalNanos, long maxIntervalNanos, long timeoutNanos) {
+            this.initialIntervalNanos = initialIntervalNanos;
+            this.maxIntervalNanos = maxIntervalNanos;
+            this.timeoutNanos = timeoutNanos;
+        }
+
+        @Override
+        void awaitReady(WiniumDriverService service, ServiceOutputStream output) {
+            awaitStatus(service, System.nanoTime() + timeoutNanos);
+        }
+
+        void awaitStatus(WiniumDriverService service, long deadline) {
+            URL statusUrl = service.getStatusUrl();
+            long interval = initialIntervalNanos;
+            while (true) {
+                checkProcessAlive(service);
+                if (isAvailable(statusUrl)) {
+                    return;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw timeout();
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(Math.min(interval, remaining));
+                } catch (InterruptedException e) {
+                    throw interrupted(e);
+                }
+                interval = Math.min(interval * 2, maxIntervalNanos);
+            }
+        }
+    }
+
+    private static class OutputLine extends WiniumServiceReadiness {
+        private static final long PROCESS_CHECK_INTERVAL_MILLIS = 50;
+
+        private final Pattern pattern;
+        private final long timeoutNanos;
+        private final StatusProbe confirmation = new StatusProbe(
+                TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(50), 0);
+
+        OutputLine(Pattern pattern, long timeoutNanos) {
+            this.pattern = pattern;
+            this.timeoutNanos = timeoutNanos;
+        }
+
+        @Override
+        void awaitReady(WiniumDriverService service, ServiceOutputStream output) {
+            long deadline = System.nanoTime() + timeoutNanos;
+            try {
+                while (!output.awaitLine(pattern, PROCESS_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    checkProcessAlive(service);
+                    if (deadline - System.nanoTime() <= 0) {
+                        throw timeout();
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw interrupted(e);
+            }
+            confirmation.awaitStatus(service, deadline);
+        }
+    }
+}
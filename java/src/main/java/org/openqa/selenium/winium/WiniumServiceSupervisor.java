@@ -0,0 +1,197 @@
+package org.openqa.selenium.winium;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keeps a started {@link WiniumDriverService} running. The driver process is checked for exit every
+ * few hundred milliseconds and its status is polled as a heartbeat; a process which has exited is started
+ * again right away, and a process which misses several heartbeats in a row is killed and started again.
+ * <p>
+ * Only the session running in the lost process fails: its in-flight command fails as soon as the process
+ * is gone, and its further commands fail without being sent, instead of waiting for timeouts.
+ * New sessions use the restarted process. Stopping the service, e.g. by quitting its driver, is not a crash.
+ * <pre>{@code
+ * WiniumServiceSupervisor supervisor = new WiniumServiceSupervisor.Builder()
+ *     .withHeartbeat(2, 10, TimeUnit.SECONDS)
+ *     .build(service);
+ * // ...
+ * supervisor.close();
+ * }</pre>
+ * The driver may not answer the heartbeat while it executes a long command, e.g. a long "waitFor",
+ * so missed heartbeats times the heartbeat timeout must exceed the longest command.
+ */
+public class WiniumServiceSupervisor implements Closeable {
+    private static final Logger LOG = Logger.getLogger(WiniumServiceSupervisor.class.getName());
+
+    private final WiniumDriverService service;
+    private final int heartbeatTimeoutMillis;
+    private final int maxMissedHeartbeats;
+    private final ScheduledExecutorService executor;
+    private final AtomicInteger restartCount = new AtomicInteger();
+    private final AtomicInteger missedHeartbeats = new AtomicInteger();
+
+    protected WiniumServiceSupervisor(WiniumDriverService service, long exitCheckIntervalMillis,
+                                      long heartbeatIntervalMillis, long heartbeatTimeoutMillis,
+                                      int maxMissedHeartbeats) {
+        this.service = service;
+        this.heartbeatTimeoutMillis = (int) heartbeatTimeoutMillis;
+        this.maxMissedHeartbeats = maxMissedHeartbeats;
+        this.executor = Executors.newScheduledThreadPool(2,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("winium-supervisor-%d").build());
+
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                checkExit();
+            }
+        }, exitCheckIntervalMillis, exitCheckIntervalMillis, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                checkHeartbeat();
+            }
+        }, heartbeatIntervalMillis, heartbeatIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return The supervised service.
+     */
+    public WiniumDriverService getService() {
+        return service;
+    }
+
+    /**
+     * @return Number of times the driver process has been started again.
+     */
+    public int getRestartCount() {
+        return restartCount.get();
+    }
+
+    /**
+     * Stops supervising the service. The service itself keeps running.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void checkExit() {
+        try {
+            if (service.restartIfExited()) {
+                missedHeartbeats.set(0);
+                restartCount.incrementAndGet();
+                LOG.warning("Driver server at " + service.getUrl() + " has exited and has been restarted");
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to restart driver server at " + service.getUrl(), e);
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Failed to restart driver server at " + service.getUrl(), e);
+        }
+    }
+
+    private void checkHeartbeat() {
+        if (!service.isRunning()) {
+            missedHeartbeats.set(0);
+            return;
+        }
+
+        if (respondsToStatus()) {
+            missedHeartbeats.set(0);
+        } else if (missedHeartbeats.incrementAndGet() >= maxMissedHeartbeats) {
+            missedHeartbeats.set(0);
+            LOG.warning("Driver server at " + service.getUrl() + " has missed " + maxMissedHeartbeats
+                    + " heartbeats, killing it");
+            service.kill();
+        }
+    }
+
+    private boolean respondsToStatus() {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) service.getStatusUrl().openConnection();
+            connection.setConnectTimeout(heartbeatTimeoutMillis);
+            connection.setReadTimeout(heartbeatTimeoutMillis);
+            return connection.getResponseCode() == HttpURLConnection.HTTP_OK;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    public static class Builder {
+        private long exitCheckIntervalMillis = 200;
+        private long heartbeatIntervalMillis = TimeUnit.SECONDS.toMillis(2);
+        private long heartbeatTimeoutMillis = TimeUnit.SECONDS.toMillis(10);
+        private int maxMissedHeartbeats = 3;
+
+        /**
+         * Sets how often the driver process is checked for exit.
+         *
+         * @param interval The interval, 200 ms by default.
+         * @param unit Unit of the interval.
+         * @return A self reference.
+         */
+        public Builder withExitCheckInterval(long interval, TimeUnit unit) {
+            checkArgument(interval > 0, "Interval must be positive: %s", interval);
+            this.exitCheckIntervalMillis = unit.toMillis(interval);
+            return this;
+        }
+
+        /**
+         * Sets how often the driver status is requested and how long to wait for the answer.
+         *
+         * @param interval The interval between heartbeats, 2 seconds by default.
+         * @param timeout The timeout of a heartbeat, 10 seconds by default.
+         * @param unit Unit of the interval and the timeout.
+         * @return A self reference.
+         */
+        public Builder withHeartbeat(long interval, long timeout, TimeUnit unit) {
+            checkArgument(interval > 0, "Interval must be positive: %s", interval);
+            checkArgument(timeout > 0 && unit.toMillis(timeout) <= Integer.MAX_VALUE,
+                    "Invalid timeout: %s", timeout);
+            this.heartbeatIntervalMillis = unit.toMillis(interval);
+            this.heartbeatTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * Sets how many heartbeats in a row the driver may miss before it is considered hung.
+         *
+         * @param maxMissedHeartbeats Number of heartbeats, 3 by default.
+         * @return A self reference.
+         */
+        public Builder withMaxMissedHeartbeats(int maxMissedHeartbeats) {
+            checkArgument(maxMissedHeartbeats > 0, "Max missed heartbeats must be positive: %s",
+                    maxMissedHeartbeats);
+            this.maxMissedHeartbeats = maxMissedHeartbeats;
+            return this;
+        }
+
+        /**
+         * Starts supervising the service. The service is supervised once it has been started.
+         *
+         * @param service The service.
+         * @return The new {@link WiniumServiceSupervisor} object.
+         */
+        public WiniumServiceSupervisor build(WiniumDriverService service) {
+            return new WiniumServiceSupervisor(checkNotNull(service), exitCheckIntervalMillis,
+                    heartbeatIntervalMillis, heartbeatTimeoutMillis, maxMissedHeartbeats);
+        }
+    }
+}
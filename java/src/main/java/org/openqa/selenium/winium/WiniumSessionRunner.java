@@ -0,0 +1,301 @@
+package org.openqa.selenium.winium;
+
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import org.openqa.selenium.WebDriverException;
+
+import java.io.Closeable;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs every session on a thread of its own: the session is started, the test runs and the session
+ * is quit on that thread. On Java 21 and later the threads are virtual threads, so hundreds of sessions
+ * waiting for their drivers occupy only a few carrier threads; on older JVMs they are platform threads
+ * with a small stack.
+ * <pre>{@code
+ * WiniumSessionRunner runner = new WiniumSessionRunner.Builder()
+ *     .withMaxConcurrentSessions(200)
+ *     .build(new URL("http://winium-node:9999"), options);
+ *
+ * List<ListenableFuture<String>> titles = new ArrayList<ListenableFuture<String>>();
+ * for (int i = 0; i < 500; i++) {
+ *     titles.add(runner.submit(new Function<WiniumDriver, String>() {
+ *         public String apply(WiniumDriver driver) {
+ *             return driver.findElementById("Title").getText();
+ *         }
+ *     }));
+ * }
+ * Futures.allAsList(titles).get();
+ * runner.close();
+ * }</pre>
+ * The client blocks on sockets and on {@link java.util.concurrent.locks.Lock}s, which release the carrier
+ * thread of a virtual thread, and not inside {@code synchronized} blocks, which would pin it. The Apache client
+ * used by default releases connections inside {@code synchronized} blocks, so sessions started with a custom
+ * factory should send commands with {@link WiniumUrlConnectionClientFactory}.
+ */
+public class WiniumSessionRunner implements Closeable {
+    private static final Logger LOG = Logger.getLogger(WiniumSessionRunner.class.getName());
+    private static final String THREAD_NAME_PREFIX = "winium-session-";
+
+    private final Supplier<WiniumDriver> sessionFactory;
+    private final ThreadFactory threadFactory;
+    private final Semaphore sessionPermits;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition finished = lock.newCondition();
+    private int running;
+    private boolean closed;
+
+    protected WiniumSessionRunner(Supplier<WiniumDriver> sessionFactory, ThreadFactory threadFactory,
+                                  int maxConcurrentSessions) {
+        this.sessionFactory = sessionFactory;
+        this.threadFactory = threadFactory;
+        this.sessionPermits = new Semaphore(maxConcurrentSessions, true);
+    }
+
+    /**
+     * Starts a thread which starts a new session, runs the test with its driver and quits the session.
+     * If the maximum number of concurrent sessions is running, the thread waits for one of them to finish.
+     *
+     * @param test The test to run.
+     * @param <T> Type of the test result.
+     * @return Future completed with the test result, or failed with the error of the session start or the test.
+     * @throws RejectedExecutionException If the runner has been closed.
+     */
+    public <T> ListenableFuture<T> submit(final Function<WiniumDriver, T> test) {
+        checkNotNull(test);
+        ListenableFutureTask<T> task = ListenableFutureTask.create(new Callable<T>() {
+            @Override
+            public T call() throws InterruptedException {
+                try {
+                    return runSession(test);
+                } finally {
+                    sessionFinished();
+                }
+            }
+        });
+
+        lock.lock();
+        try {
+            if (closed) {
+                throw new RejectedExecutionException("Session runner has been closed");
+            }
+            running++;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            threadFactory.newThread(task).start();
+        } catch (RuntimeException e) {
+            sessionFinished();
+            throw e;
+        } catch (Error e) {
+            sessionFinished();
+            throw e;
+        }
+        return task;
+    }
+
+    /**
+     * @return Number of submitted tests which have not finished yet, including those waiting to start.
+     */
+    public int getRunningCount() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting tests and waits for the submitted ones to finish.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            while (running > 0) {
+                finished.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> T runSession(Function<WiniumDriver, T> test) throws InterruptedException {
+        sessionPermits.acquire();
+        try {
+            WiniumDriver driver = sessionFactory.get();
+            try {
+                return test.apply(driver);
+            } finally {
+                try {
+                    driver.quit();
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "Failed to quit the session", e);
+                }
+            }
+        } finally {
+            sessionPermits.release();
+        }
+    }
+
+    private void sessionFinished() {
+        lock.lock();
+        try {
+            running--;
+            finished.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a factory of virtual threads if the JVM supports them, looked up reflectively because
+     * the client is compiled for Java 6.
+     *
+     * @param namePrefix Prefix of thread names, followed by a counter.
+     * @return The factory or null if virtual threads are not available.
+     */
+    static ThreadFactory virtualThreadFactory(String namePrefix) {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = ofVirtual.invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            // Java 20 and older, or virtual threads disabled as a preview feature
+            return null;
+        }
+    }
+
+    /**
+     * Creates a factory of daemon platform threads with the given stack size.
+     */
+    static ThreadFactory platformThreadFactory(final long stackSize) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(null, runnable, THREAD_NAME_PREFIX + threadCount.getAndIncrement(),
+                        stackSize);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    public static class Builder {
+        private ThreadFactory threadFactory = null;
+        private boolean virtualThreads = true;
+        private long platformStackSize = 256 * 1024;
+        private int maxConcurrentSessions = Integer.MAX_VALUE;
+
+        /**
+         * Configures whether sessions run on virtual threads when the JVM supports them.
+         *
+         * @param virtualThreads true to use virtual threads on Java 21 and later (default),
+         * false to always use platform threads.
+         * @return A self reference.
+         */
+        public Builder withVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * Sets the stack size of platform threads, used when virtual threads are not available or disabled.
+         *
+         * @param stackSize The stack size in bytes, 256 KB by default, 0 for the JVM default.
+         * @return A self reference.
+         */
+        public Builder withPlatformStackSize(long stackSize) {
+            checkArgument(stackSize >= 0, "Stack size must not be negative: %s", stackSize);
+            this.platformStackSize = stackSize;
+            return this;
+        }
+
+        /**
+         * Sets the factory of session threads, replacing the virtual or platform thread choice.
+         *
+         * @param threadFactory The factory, e.g. one creating threads of a custom group.
+         * @return A self reference.
+         */
+        public Builder withThreadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = checkNotNull(threadFactory);
+            return this;
+        }
+
+        /**
+         * Limits how many sessions run at the same time, e.g. to the capacity of the Winium node.
+         *
+         * @param maxConcurrentSessions Number of sessions, unlimited by default.
+         * @return A self reference.
+         */
+        public Builder withMaxConcurrentSessions(int maxConcurrentSessions) {
+            checkArgument(maxConcurrentSessions > 0, "Max concurrent sessions must be positive: %s",
+                    maxConcurrentSessions);
+            this.maxConcurrentSessions = maxConcurrentSessions;
+            return this;
+        }
+
+        /**
+         * Creates a runner starting sessions on the remote server. Sessions send commands
+         * with a shared {@link WiniumUrlConnectionClientFactory}.
+         *
+         * @param remoteUrl URL of the remote server.
+         * @param options Options of every session.
+         * @return The new {@link WiniumSessionRunner} object.
+         */
+        public WiniumSessionRunner build(final URL remoteUrl, final WiniumOptions options) {
+            checkNotNull(remoteUrl);
+            checkNotNull(options);
+            final WiniumUrlConnectionClientFactory clientFactory = new WiniumUrlConnectionClientFactory.Builder().build();
+            return build(new Supplier<WiniumDriver>() {
+                @Override
+                public WiniumDriver get() {
+                    return new WiniumDriver(new WiniumDriverCommandExecutor(remoteUrl, clientFactory), options);
+                }
+            });
+        }
+
+        /**
+         * Creates a runner starting sessions with the factory, e.g. with a shared {@link WiniumHttpClientFactory}.
+         *
+         * @param sessionFactory Factory starting a new session on every call.
+         * @return The new {@link WiniumSessionRunner} object.
+         */
+        public WiniumSessionRunner build(Supplier<WiniumDriver> sessionFactory) {
+            checkNotNull(sessionFactory);
+            ThreadFactory factory = threadFactory;
+            if (factory == null && virtualThreads) {
+                factory = virtualThreadFactory(THREAD_NAME_PREFIX);
+            }
+            if (factory == null) {
+                factory = platformThreadFactory(platformStackSize);
+            }
+            return new WiniumSessionRunner(sessionFactory, factory, maxConcurrentSessions);
+        }
+    }
+}
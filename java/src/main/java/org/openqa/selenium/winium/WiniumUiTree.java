@@ -0,0 +1,418 @@
+package org.openqa.selenium.winium;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.ErrorCodes;
+import org.openqa.selenium.remote.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Snapshot of a UI Automation subtree with the chosen properties of every element,
+ * fetched with a single "snapshotTree" request instead of a request per element and property.
+ * The response is parsed token by token straight into compact nodes, without building
+ * an intermediate JSON document. The request goes through the command executor of the driver
+ * like any other command, with its HTTP client, timeouts, metrics and hedging policy.
+ * <pre>{@code
+ * WiniumUiTree dialog = new WiniumUiTree.Builder()
+ *     .withRoot(driver.findElementById("SaveDialog"))
+ *     .withProperties("Name", "ControlType", "IsEnabled", "IsOffscreen")
+ *     .withMaxDepth(5)
+ *     .snapshot(driver);
+ *
+ * for (WiniumUiTree.Node button : dialog.findAll("ControlType", "ControlType.Button")) {
+ *     assertEquals(Boolean.TRUE, button.getProperty("IsEnabled"));
+ * }
+ * dialog.findFirst("Name", "Save").toElement().click();
+ * }</pre>
+ * The driver answers with nodes of the form
+ * {@code {"id": "<element id>", "properties": {"Name": "Save", ...}, "children": [...]}}.
+ */
+public class WiniumUiTree {
+    static final String SNAPSHOT_TREE_COMMAND = "snapshotTree";
+
+    private final WiniumDriver driver;
+    private final List<String> propertyNames = new ArrayList<String>();
+    private final Map<String, Integer> propertyIndexes = new HashMap<String, Integer>();
+    private final List<Node> nodes = new ArrayList<Node>();
+    private Node root;
+
+    private WiniumUiTree(WiniumDriver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * @return The root element of the snapshot.
+     */
+    public Node getRoot() {
+        return root;
+    }
+
+    /**
+     * @return All elements in depth-first order, starting with the root.
+     */
+    public List<Node> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    /**
+     * @return Number of elements in the snapshot.
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * @return Names of the properties returned by the driver.
+     */
+    public List<String> getPropertyNames() {
+        return Collections.unmodifiableList(propertyNames);
+    }
+
+    /**
+     * Finds elements whose property has the given value, comparing string forms, e.g. "true" matches true.
+     *
+     * @param propertyName Name of the property.
+     * @param value Expected value.
+     * @return Matching elements in depth-first order.
+     */
+    public List<Node> findAll(String propertyName, String value) {
+        checkNotNull(value);
+        Integer index = propertyIndexes.get(propertyName);
+        if (index == null) {
+            return Collections.emptyList();
+        }
+
+        List<Node> found = new ArrayList<Node>();
+        for (Node node : nodes) {
+            if (value.equals(node.getString(index))) {
+                found.add(node);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the first element whose property has the given value, comparing string forms.
+     *
+     * @param propertyName Name of the property.
+     * @param value Expected value.
+     * @return The first matching element in depth-first order or null.
+     */
+    public Node findFirst(String propertyName, String value) {
+        checkNotNull(value);
+        Integer index = propertyIndexes.get(propertyName);
+        if (index == null) {
+            return null;
+        }
+
+        for (Node node : nodes) {
+            if (value.equals(node.getString(index))) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private int indexOf(String propertyName) {
+        Integer index = propertyIndexes.get(propertyName);
+        if (index == null) {
+            index = propertyNames.size();
+            propertyNames.add(propertyName);
+            propertyIndexes.put(propertyName, index);
+        }
+        return index;
+    }
+
+    /**
+     * Element of the snapshot. Property values are strings, booleans, numbers or null.
+     */
+    public static class Node {
+        private static final Object[] NO_VALUES = new Object[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private final WiniumUiTree tree;
+        private final Node parent;
+        private String id;
+        private Object[] values = NO_VALUES;
+        private Node[] children = NO_CHILDREN;
+
+        private Node(WiniumUiTree tree, Node parent) {
+            this.tree = tree;
+            this.parent = parent;
+        }
+
+        /**
+         * @return Id of the element, which can be used with the driver, or null if the driver did not return it.
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * @param propertyName Name of the property.
+         * @return Value of the property or null if the element does not have it.
+         */
+        public Object getProperty(String propertyName) {
+            Integer index = tree.propertyIndexes.get(propertyName);
+            return (index == null) || (index >= values.length) ? null : values[index];
+        }
+
+        /**
+         * @return The parent element or null for the root.
+         */
+        public Node getParent() {
+            return parent;
+        }
+
+        /**
+         * @return Child elements in UI Automation order.
+         */
+        public List<Node> getChildren() {
+            return Collections.unmodifiableList(Arrays.asList(children));
+        }
+
+        /**
+         * Returns the element for further commands. The element may have become stale since the snapshot.
+         *
+         * @return The element of the driver's session.
+         */
+        public WebElement toElement() {
+            checkArgument(id != null, "The driver did not return the element id");
+            return (WebElement) tree.driver.convertResponseValue(elementResponse(id));
+        }
+
+        private String getString(int index) {
+            return (index >= values.length) || (values[index] == null) ? null : String.valueOf(values[index]);
+        }
+
+        private void setValue(int index, Object value) {
+            if (index >= values.length) {
+                values = Arrays.copyOf(values, tree.propertyNames.size());
+            }
+            values[index] = value;
+        }
+
+        private static Response elementResponse(String id) {
+            Response response = new Response();
+            response.setValue(ImmutableMap.of("ELEMENT", id));
+            return response;
+        }
+    }
+
+    public static class Builder {
+        private WebElement root = null;
+        private List<String> properties = ImmutableList.of("Name", "AutomationId", "ClassName", "ControlType");
+        private int maxDepth = -1;
+
+        /**
+         * Sets the element the snapshot starts at.
+         *
+         * @param root The element found by the driver, or null for the whole window (default).
+         * @return A self reference.
+         */
+        public Builder withRoot(WebElement root) {
+            this.root = root;
+            return this;
+        }
+
+        /**
+         * Sets the UI Automation properties returned for every element.
+         *
+         * @param properties Property names, by default Name, AutomationId, ClassName and ControlType.
+         * @return A self reference.
+         */
+        public Builder withProperties(String... properties) {
+            this.properties = ImmutableList.copyOf(properties);
+            return this;
+        }
+
+        /**
+         * Limits how deep below the root elements are returned.
+         *
+         * @param maxDepth Depth, 0 for the root only, -1 for no limit (default).
+         * @return A self reference.
+         */
+        public Builder withMaxDepth(int maxDepth) {
+            checkArgument(maxDepth >= -1, "Max depth must not be less than -1: %s", maxDepth);
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * Fetches the snapshot. Commands queued in the pipelined mode are sent first.
+         *
+         * @param driver The driver with a started session.
+         * @return The new {@link WiniumUiTree} object.
+         * @throws org.openqa.selenium.UnsupportedCommandException If the driver does not support the command.
+         */
+        public WiniumUiTree snapshot(WiniumDriver driver) {
+            checkNotNull(driver);
+            driver.flush();
+
+            Map<String, Object> parameters = new HashMap<String, Object>();
+            if (root != null) {
+                parameters.put("id", WiniumBatch.idOf(root));
+            }
+            parameters.put("properties", properties);
+            parameters.put("depth", maxDepth);
+
+            Response response;
+            try {
+                response = driver.getWiniumCommandExecutor().execute(
+                        new Command(driver.getSessionId(), SNAPSHOT_TREE_COMMAND, parameters), new Parser(driver));
+            } catch (IOException e) {
+                throw new WebDriverException("Failed to fetch UI tree snapshot", e);
+            }
+            driver.getErrorHandler().throwIfResponseFailed(response, 0);
+            if (!(response.getValue() instanceof WiniumUiTree)) {
+                throw new WebDriverException("Unexpected snapshotTree response without a tree");
+            }
+            return (WiniumUiTree) response.getValue();
+        }
+    }
+
+    /**
+     * Reads the response into the tree one token at a time. Hedged requests are read concurrently,
+     * so every response gets a tree of its own.
+     */
+    private static class Parser implements WiniumDriverCommandExecutor.ResponseReader {
+        private final WiniumDriver driver;
+
+        Parser(WiniumDriver driver) {
+            this.driver = driver;
+        }
+
+        @Override
+        public Response read(InputStream body) {
+            JsonReader reader = new JsonReader(new InputStreamReader(body, Charsets.UTF_8));
+            try {
+                return new TreeReader(driver).read(reader);
+            } catch (IOException e) {
+                throw new WebDriverException("Failed to parse UI tree snapshot", e);
+            } catch (JsonParseException e) {
+                throw new WebDriverException("Failed to parse UI tree snapshot", e);
+            } catch (IllegalStateException e) {
+                throw new WebDriverException("Failed to parse UI tree snapshot", e);
+            }
+        }
+    }
+
+    private static class TreeReader {
+        private final WiniumDriver driver;
+        private final WiniumUiTree tree;
+        private String message;
+
+        TreeReader(WiniumDriver driver) {
+            this.driver = driver;
+            this.tree = new WiniumUiTree(driver);
+        }
+
+        Response read(JsonReader reader) throws IOException {
+            int status = ErrorCodes.SUCCESS;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("status".equals(name)) {
+                    status = reader.nextInt();
+                } else if ("value".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    tree.root = readNode(reader, null);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            Response response = new Response(driver.getSessionId());
+            response.setStatus(status);
+            if (status != ErrorCodes.SUCCESS) {
+                response.setValue(message == null ? null : ImmutableMap.of("message", message));
+            } else if (tree.root != null) {
+                response.setValue(tree);
+            }
+            return response;
+        }
+
+        private Node readNode(JsonReader reader, Node parent) throws IOException {
+            Node node = new Node(tree, parent);
+            tree.nodes.add(node);
+            List<Node> children = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("id".equals(name)) {
+                    node.id = reader.nextString();
+                } else if ("properties".equals(name)) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        int index = tree.indexOf(reader.nextName());
+                        node.setValue(index, readValue(reader));
+                    }
+                    reader.endObject();
+                } else if ("children".equals(name)) {
+                    children = new ArrayList<Node>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        children.add(readNode(reader, node));
+                    }
+                    reader.endArray();
+                } else if ("message".equals(name) && parent == null) {
+                    message = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (children != null && !children.isEmpty()) {
+                node.children = children.toArray(new Node[children.size()]);
+            }
+            return node;
+        }
+
+        private static Object readValue(JsonReader reader) throws IOException {
+            switch (reader.peek()) {
+                case STRING:
+                    return reader.nextString();
+
+                case BOOLEAN:
+                    return reader.nextBoolean();
+
+                case NUMBER:
+                    String number = reader.nextString();
+                    try {
+                        return Long.valueOf(number);
+                    } catch (NumberFormatException e) {
+                        return Double.valueOf(number);
+                    }
+
+                case NULL:
+                    reader.nextNull();
+                    return null;
+
+                default:
+                    reader.skipValue();
+                    return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.openqa.selenium.winium;
+
+import com.google.common.io.ByteStreams;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HttpClient.Factory} for {@link WiniumDriverCommandExecutor} which sends commands with
+ * {@link HttpURLConnection}. Connections are kept alive by the JDK, and on Java 21 and later the JDK
+ * client blocks only on sockets and locks, so a session running on a virtual thread does not pin its
+ * carrier thread while it waits for the driver, unlike with the Apache client used by default.
+ * <pre>{@code
+ * WiniumUrlConnectionClientFactory clientFactory = new WiniumUrlConnectionClientFactory.Builder()
+ *     .withReadTimeout(2, TimeUnit.MINUTES)
+ *     .build();
+ *
+ * WiniumDriver driver = new WiniumDriver(new WiniumDriverCommandExecutor(remoteUrl, clientFactory), options);
+ * }</pre>
+ */
+public class WiniumUrlConnectionClientFactory implements HttpClient.Factory {
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+
+    protected WiniumUrlConnectionClientFactory(int connectTimeoutMillis, int readTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    @Override
+    public HttpClient createClient(final URL url) {
+        return new HttpClient() {
+            @Override
+            public HttpResponse execute(HttpRequest request, boolean followRedirects) throws IOException {
+                return send(url, request, followRedirects);
+            }
+        };
+    }
+
+    private HttpResponse send(URL baseUrl, HttpRequest request, boolean followRedirects) throws IOException {
+        URL url = new URL(baseUrl.toString().replaceAll("/$", "") + request.getUri());
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(connectTimeoutMillis);
+        connection.setReadTimeout(readTimeoutMillis);
+        connection.setInstanceFollowRedirects(followRedirects);
+        connection.setUseCaches(false);
+        connection.setRequestMethod(request.getMethod().name());
+        for (String name : request.getHeaderNames()) {
+            for (String value : request.getHeaders(name)) {
+                connection.addRequestProperty(name, value);
+            }
+        }
+
+        if (request.getMethod() == HttpMethod.POST) {
+            byte[] content = request.getContent();
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(content.length);
+            OutputStream out = connection.getOutputStream();
+            try {
+                out.write(content);
+            } finally {
+                out.close();
+            }
+        }
+
+        HttpResponse response = new HttpResponse();
+        int status = connection.getResponseCode();
+        response.setStatus(status);
+        response.setTargetHost(connection.getURL().toString());
+        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+            if (header.getKey() == null) {
+                // The status line
+                continue;
+            }
+            for (String value : header.getValue()) {
+                response.addHeader(header.getKey(), value);
+            }
+        }
+
+        // The body is read to the end so the connection can be kept alive
+        InputStream in = status < HttpURLConnection.HTTP_BAD_REQUEST
+                ? connection.getInputStream() : connection.getErrorStream();
+        if (in == null) {
+            response.setContent(new byte[0]);
+            return response;
+        }
+        try {
+            response.setContent(ByteStreams.toByteArray(in));
+        } finally {
+            in.close();
+        }
+        return response;
+    }
+
+    public static class Builder {
+        private int connectTimeoutMillis = (int) TimeUnit.MINUTES.toMillis(2);
+        private int readTimeoutMillis = (int) TimeUnit.HOURS.toMillis(3);
+
+        /**
+         * Sets how long to wait for a connection to the driver to be established.
+         *
+         * @param timeout Connect timeout.
+         * @param unit Unit of the timeout.
+         * @return A self reference.
+         */
+        public Builder withConnectTimeout(long timeout, TimeUnit unit) {
+            this.connectTimeoutMillis = WiniumHttpClientFactory.toIntMillis(timeout, unit);
+            return this;
+        }
+
+        /**
+         * Sets how long to wait for the driver to respond to a command.
+         *
+         * @param timeout Read timeout.
+         * @param unit Unit of the timeout.
+         * @return A self reference.
+         */
+        public Builder withReadTimeout(long timeout, TimeUnit unit) {
+            this.readTimeoutMillis = WiniumHttpClientFactory.toIntMillis(timeout, unit);
+            return this;
+        }
+
+        /**
+         * Creates a new {@link WiniumUrlConnectionClientFactory}.
+         *
+         * @return The new {@link WiniumUrlConnectionClientFactory} object.
+         */
+        public WiniumUrlConnectionClientFactory build() {
+            return new WiniumUrlConnectionClientFactory(connectTimeoutMillis, readTimeoutMillis);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package org.openqa.selenium.winium;
+
+import com.google.common.collect.ImmutableMap;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.UnsupportedCommandException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.ErrorCodes;
+import org.openqa.selenium.remote.Response;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Waits for an element condition with a single "waitFor" request, so the driver polls the UI itself
+ * instead of the client sending a findElement request on every iteration.
+ * Drivers which do not support the command are polled by the client with an adaptive backoff.
+ * <pre>{@code
+ * WiniumWait wait = new WiniumWait(driver).withTimeout(10, TimeUnit.SECONDS);
+ * wait.until(WiniumWait.Condition.VISIBLE, "id", "OkButton").click();
+ * wait.until(WiniumWait.Condition.ABSENT, "name", "Loading...");
+ * }</pre>
+ */
+public class WiniumWait {
+    static final String WAIT_FOR_COMMAND = "waitFor";
+
+    private static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final long DEFAULT_MIN_POLL_INTERVAL_MILLIS = 10;
+    private static final long DEFAULT_MAX_POLL_INTERVAL_MILLIS = 500;
+
+    /**
+     * Condition of the first element matching the locator.
+     */
+    public enum Condition {
+        /**
+         * The element exists.
+         */
+        PRESENT("present"),
+
+        /**
+         * The element exists and is displayed.
+         */
+        VISIBLE("visible"),
+
+        /**
+         * The element exists and is enabled.
+         */
+        ENABLED("enabled"),
+
+        /**
+         * No element matches the locator.
+         */
+        ABSENT("absent");
+
+        private final String value;
+
+        Condition(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+
+    private final WiniumDriver driver;
+    private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    private long minPollIntervalMillis = DEFAULT_MIN_POLL_INTERVAL_MILLIS;
+    private long maxPollIntervalMillis = DEFAULT_MAX_POLL_INTERVAL_MILLIS;
+
+    /**
+     * Creates wait for elements of the driver's session.
+     *
+     * @param driver The driver with a started session.
+     */
+    public WiniumWait(WiniumDriver driver) {
+        this.driver = checkNotNull(driver);
+    }
+
+    /**
+     * Sets how long to wait for the condition.
+     *
+     * @param timeout The timeout, 10 seconds by default.
+     * @param unit Unit of the timeout.
+     * @return A self reference.
+     */
+    public WiniumWait withTimeout(long timeout, TimeUnit unit) {
+        checkArgument(timeout >= 0, "Timeout must not be negative: %s", timeout);
+        this.timeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Sets intervals of the client polling used when the driver does not support the "waitFor" command.
+     * The interval starts at the minimum and doubles up to the maximum while the condition does not hold.
+     *
+     * @param minInterval The first interval, 10 ms by default.
+     * @param maxInterval The maximal interval, 500 ms by default.
+     * @param unit Unit of the intervals.
+     * @return A self reference.
+     */
+    public WiniumWait withPolling(long minInterval, long maxInterval, TimeUnit unit) {
+        checkArgument(minInterval > 0, "Min interval must be positive: %s", minInterval);
+        checkArgument(maxInterval >= minInterval, "Max interval must not be less than min interval: %s",
+                maxInterval);
+        this.minPollIntervalMillis = unit.toMillis(minInterval);
+        this.maxPollIntervalMillis = unit.toMillis(maxInterval);
+        return this;
+    }
+
+    /**
+     * Blocks until the condition holds for the first element matching the locator.
+     * Commands queued in the pipelined mode are sent first, so the wait sees their effect.
+     *
+     * @param condition The condition.
+     * @param using The locator strategy, e.g. "id", "name", "class name" or "xpath".
+     * @param value The locator value.
+     * @return The element, or null for {@link Condition#ABSENT}.
+     * @throws TimeoutException If the condition does not hold in time.
+     */
+    public WebElement until(Condition condition, String using, String value) {
+        checkNotNull(condition);
+        driver.flush();
+
+        WiniumDriverCommandExecutor executor = driver.getWiniumCommandExecutor();
+        if (executor.isWaitForSupported()) {
+            Response response = executeWaitFor(condition, using, value);
+            if (response != null) {
+                driver.getErrorHandler().throwIfResponseFailed(response, 0);
+                Object element = driver.convertResponseValue(response);
+                if ((element != null) && !(element instanceof WebElement)) {
+                    throw new WebDriverException("Unexpected waitFor response: " + element);
+                }
+                return (WebElement) element;
+            }
+            executor.setWaitForSupported(false);
+        }
+
+        return poll(condition, using, value);
+    }
+
+    private Response executeWaitFor(Condition condition, String using, String value) {
+        Response response;
+        try {
+            response = driver.executeRaw(WAIT_FOR_COMMAND, ImmutableMap.<String, Object>of(
+                    "using", using, "value", value, "condition", condition.toString(), "timeout", timeoutMillis));
+        } catch (UnsupportedCommandException e) {
+            return null;
+        }
+        return response.getStatus() == ErrorCodes.UNKNOWN_COMMAND ? null : response;
+    }
+
+    private WebElement poll(Condition condition, String using, String value) {
+        Map<String, ?> parameters = ImmutableMap.of("using", using, "value", value);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long interval = minPollIntervalMillis;
+        while (true) {
+            List<?> elements = (List<?>) driver.executeCommand(DriverCommand.FIND_ELEMENTS, parameters).getValue();
+            WebElement element = elements.isEmpty() ? null : (WebElement) elements.get(0);
+            if (holds(condition, element)) {
+                return element;
+            }
+
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                throw new TimeoutException(String.format("Timed out after %d ms waiting for element %s: %s to be %s",
+                        timeoutMillis, using, value, condition));
+            }
+            try {
+                Thread.sleep(Math.min(interval, remaining));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WebDriverException(e);
+            }
+            interval = Math.min(interval * 2, maxPollIntervalMillis);
+        }
+    }
+
+    private static boolean holds(Condition condition, WebElement element) {
+        if (condition == Condition.ABSENT) {
+            return element == null;
+        }
+        if (element == null) {
+            return false;
+        }
+
+        try {
+            switch (condition) {
+                case VISIBLE:
+                    return element.isDisplayed();
+
+                case ENABLED:
+                    return element.isEnabled();
+
+                default:
+                    return true;
+            }
+        } catch (StaleElementReferenceException e) {
+            return false;
+        }
+    }
+}